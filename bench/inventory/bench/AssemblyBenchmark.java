@@ -0,0 +1,83 @@
+package inventory.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import inventory.model.Inhouse;
+import inventory.model.Part;
+import inventory.model.Product;
+
+/**
+ * Changing the price of a part deep inside assemblies. Every level holds a number of
+ * assemblies, each containing its own parts and the level below, so the tree grows
+ * with the width while the products above one part stay few.
+ * @author Aaron Echols
+ *
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AssemblyBenchmark {
+
+	@Param({"2", "4", "8"})
+	public int depth;
+
+	@Param({"1", "4", "16"})
+	public int width;
+
+	private Part leaf;
+	private Product top;
+	private long[] priceCents;
+	private int next;
+
+	@Setup
+	public void createAssemblies() {
+		leaf = new Inhouse("Leaf", 1, 10, 0, 100, 1);
+		List<Product> level = new ArrayList<>();
+		for (int i = 0; i < width; i++) {
+			level.add(new Product("Assembly 0." + i, 1_000_000, leaf));
+		}
+		for (int d = 1; d <= depth; d++) {
+			List<Product> above = new ArrayList<>();
+			for (int i = 0; i < width; i++) {
+				Product product = new Product("Assembly " + d + "." + i, 1_000_000,
+						new Inhouse("Part " + d + "." + i, 1, 10, 0, 100, 1));
+				// each assembly of this level holds two of each assembly below
+				for (Product assembly : level) {
+					product.addAssembly(assembly, 2);
+				}
+				above.add(product);
+			}
+			level = above;
+		}
+		top = level.get(0);
+
+		priceCents = new long[16];
+		for (int i = 0; i < priceCents.length; i++) {
+			priceCents[i] = 100 + i;
+		}
+	}
+
+	/** The change is passed up through every assembly above the leaf part. */
+	@Benchmark
+	public long setLeafPrice() {
+		leaf.setPriceCents(priceCents[next++ & 15]);
+		return top.getPartsCostCents();
+	}
+}
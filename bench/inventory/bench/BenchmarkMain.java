@@ -0,0 +1,34 @@
+package inventory.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks of the inventory model, reporting the throughput, the latency
+ * percentiles, and the allocation rate from the GC profiler of each benchmark.
+ *
+ * The benchmarks live in their own source folder, outside of the application build.
+ * Compile them against the application classes and the JMH jars (jmh-core,
+ * jmh-generator-annprocess, jopt-simple and commons-math3) with the JMH annotation
+ * processor on the processor path, then run this class with the same class path and
+ * the JavaFX jars. The usual JMH command line options can be passed, for example
+ * a benchmark name pattern or "-p parts=1000,10000" to only run the smaller catalogs.
+ * @author Aaron Echols
+ *
+ */
+public class BenchmarkMain {
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.include("inventory\\.bench\\..*")
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
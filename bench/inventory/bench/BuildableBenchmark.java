@@ -0,0 +1,83 @@
+package inventory.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import inventory.model.BuildableQuantities;
+import inventory.model.Inventory;
+import inventory.model.Part;
+import inventory.model.Product;
+
+/**
+ * Working out how many of each product can be built, for every product at once,
+ * after the stock of one part changed and after a product was added and removed,
+ * on an inventory of each catalog size.
+ * @author Aaron Echols
+ *
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BuildableBenchmark {
+
+	private Inventory inventory;
+	private BuildableQuantities buildable;
+	private Part[] parts;
+	// contained as an assembly by the added products
+	private Product assembly;
+	// moves through the prepared parts, a different one for each call
+	private int next;
+
+	@Setup
+	public void createEngine(CatalogState catalog) {
+		inventory = catalog.inventory;
+		buildable = new BuildableQuantities(inventory);
+		assembly = inventory.getProductSnapshot().get(0);
+		parts = new Part[CatalogState.KEYS];
+		for (int i = 0; i < parts.length; i++) {
+			parts[i] = catalog.inventory.lookupPart(catalog.partIDs[i]);
+		}
+	}
+	@TearDown
+	public void closeEngine() {
+		buildable.close();
+	}
+
+	/** Every product is worked out again, in parallel. */
+	@Benchmark
+	public void refreshAll() {
+		buildable.refresh();
+	}
+	/** Only the products that use the part are worked out again. */
+	@Benchmark
+	public int setPartStock() {
+		Part part = parts[next++ & (CatalogState.KEYS - 1)];
+		part.setInstock(part.getInstock() == part.getMin() ? part.getMax() : part.getMin());
+		return buildable.getBuildable(0);
+	}
+	/** Only the added product and the products above it are visited, not the whole catalog. */
+	@Benchmark
+	public int addRemoveProduct() {
+		Part part = parts[next++ & (CatalogState.KEYS - 1)];
+		Product product = new Product("Benchmark", part.getPrice(), 0, 0, 0, part);
+		product.addAssembly(assembly, 1);
+		inventory.addProduct(product);
+		int quantity = buildable.getBuildable(product);
+		inventory.removeNotEmptyProduct(product);
+		return quantity;
+	}
+}
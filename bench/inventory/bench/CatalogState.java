@@ -0,0 +1,68 @@
+package inventory.bench;
+
+import java.util.List;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import inventory.model.CatalogGenerator;
+import inventory.model.Inventory;
+import inventory.model.Part;
+import inventory.model.Product;
+
+/**
+ * An inventory filled with a generated catalog of the benchmarked size, shared by the benchmarks,
+ * and the keys they look up. There is one product for every ten parts.
+ * @author Aaron Echols
+ *
+ */
+@State(Scope.Benchmark)
+public class CatalogState {
+
+	// the number of keys prepared for each kind of lookup, a power of two
+	static final int KEYS = 1 << 12;
+
+	@Param({"1000", "10000", "100000", "1000000"})
+	public int parts;
+
+	@Param({"false", "true"})
+	public boolean columnar;
+
+	Inventory inventory;
+	String[] partNames;
+	int[] partIDs;
+	String[] partQueries;
+	String[] productQueries;
+
+	@Setup(Level.Trial)
+	public void createCatalog() {
+		inventory = new Inventory(columnar);
+		CatalogGenerator generator = new CatalogGenerator(42);
+		generator.setParts(parts);
+		generator.setProducts(parts / 10);
+		generator.setSuppliers(Math.max(1, parts / 100));
+		generator.setNameCollisionRate(0.01);
+		generator.generate(inventory);
+
+		List<Part> catalog = inventory.getPartSnapshot();
+		List<Product> products = inventory.getProductSnapshot();
+		Random random = new Random(42);
+		partNames = new String[KEYS];
+		partIDs = new int[KEYS];
+		partQueries = new String[KEYS];
+		productQueries = new String[KEYS];
+		for (int i = 0; i < KEYS; i++) {
+			Part part = catalog.get(random.nextInt(catalog.size()));
+			partNames[i] = part.getName();
+			partIDs[i] = part.getPartID();
+			// the start of a part number, which matches a handful of parts
+			String number = part.getName().substring(part.getName().lastIndexOf(' '));
+			partQueries[i] = number.substring(0, Math.min(number.length(), 5));
+			productQueries[i] = products.get(random.nextInt(products.size())).getName();
+		}
+	}
+}
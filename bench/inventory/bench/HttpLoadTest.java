@@ -0,0 +1,200 @@
+package inventory.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import inventory.model.CatalogGenerator;
+import inventory.model.Inventory;
+import inventory.model.Part;
+import inventory.server.InventoryServer;
+
+/**
+ * A load test of the HTTP server: many clients send requests at the same time, on
+ * connections that are kept alive, to a server on the loopback address serving a
+ * generated catalog. Each client looks up a part by ID number, searches the parts,
+ * or updates the stock of a part, in the proportions 8:1:1, and starts the next
+ * request as soon as the last one is answered.
+ *
+ * After a warm up the test measures for a fixed time and reports the throughput,
+ * the latency percentiles, and the number of failed requests.
+ * Run it with the application classes on the class path, giving the number of parts,
+ * clients, and seconds to measure, for example "100000 1000 30".
+ * @author Aaron Echols
+ *
+ */
+public class HttpLoadTest {
+
+	private static final int WARMUP_SECONDS = 5;
+
+	public static void main(String[] args) throws Exception {
+		int parts = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+		int clients = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+		// keep a connection alive for every client
+		System.setProperty("http.maxConnections", Integer.toString(clients));
+
+		Inventory inventory = new Inventory(true);
+		CatalogGenerator generator = new CatalogGenerator(42);
+		generator.setParts(parts);
+		generator.setProducts(parts / 10);
+		generator.setSuppliers(Math.max(1, parts / 100));
+		generator.generate(inventory);
+		List<Part> catalog = inventory.getPartSnapshot();
+		int[] partIDs = new int[catalog.size()];
+		for (int i = 0; i < partIDs.length; i++) {
+			partIDs[i] = catalog.get(i).getPartID();
+		}
+
+		try (InventoryServer server = new InventoryServer(inventory, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+			server.start();
+			String base = "http://127.0.0.1:" + server.getAddress().getPort();
+
+			Client[] running = new Client[clients];
+			CountDownLatch finished = new CountDownLatch(clients);
+			for (int i = 0; i < clients; i++) {
+				running[i] = new Client(base, partIDs, new Random(i), finished);
+				Thread thread = new Thread(running[i], "client-" + i);
+				thread.setDaemon(true);
+				thread.start();
+			}
+
+			Thread.sleep(WARMUP_SECONDS * 1000L);
+			for (Client client : running) client.measuring = true;
+			long start = System.nanoTime();
+			Thread.sleep(seconds * 1000L);
+			for (Client client : running) client.stopped = true;
+			double elapsed = (System.nanoTime() - start) / 1e9;
+			finished.await();
+
+			report(running, elapsed, clients, parts);
+		}
+	}
+
+	private static void report(Client[] clients, double elapsed, int clientCount, int parts) {
+		int count = 0;
+		long errors = 0;
+		for (Client client : clients) {
+			count += client.count;
+			errors += client.errors;
+		}
+		long[] latencies = new long[count];
+		int next = 0;
+		for (Client client : clients) {
+			System.arraycopy(client.latencies, 0, latencies, next, client.count);
+			next += client.count;
+		}
+		Arrays.sort(latencies);
+
+		System.out.printf("%d clients, %d parts, %.1f s%n", clientCount, parts, elapsed);
+		System.out.printf("requests: %d (%.0f/s), failed: %d%n", count, count / elapsed, errors);
+		if (count > 0) {
+			System.out.printf("latency ms: p50 %.2f  p90 %.2f  p99 %.2f  p99.9 %.2f  max %.2f%n",
+					percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+					percentile(latencies, 0.999), latencies[count - 1] / 1e6);
+		}
+	}
+	private static double percentile(long[] sorted, double fraction) {
+		return sorted[Math.min(sorted.length - 1, (int)(sorted.length * fraction))] / 1e6;
+	}
+
+	/**
+	 * One client, sending one request at a time.
+	 */
+	private static final class Client implements Runnable {
+		private final String base;
+		private final int[] partIDs;
+		private final Random random;
+		private final CountDownLatch finished;
+
+		volatile boolean measuring;
+		volatile boolean stopped;
+		// the latency of each measured request in nanoseconds
+		long[] latencies = new long[1024];
+		int count;
+		long errors;
+
+		Client(String base, int[] partIDs, Random random, CountDownLatch finished) {
+			this.base = base;
+			this.partIDs = partIDs;
+			this.random = random;
+			this.finished = finished;
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (!stopped) {
+					long start = System.nanoTime();
+					boolean ok = request();
+					long latency = System.nanoTime() - start;
+					if (!measuring) continue;
+
+					if (!ok) errors++;
+					if (count == latencies.length) {
+						latencies = Arrays.copyOf(latencies, count * 2);
+					}
+					latencies[count++] = latency;
+				}
+			} finally {
+				finished.countDown();
+			}
+		}
+
+		/**
+		 * Send a request and read the whole response.
+		 * @return true if the request succeeded
+		 */
+		private boolean request() {
+			int partID = partIDs[random.nextInt(partIDs.length)];
+			int choice = random.nextInt(10);
+			try {
+				if (choice < 8) {
+					return send("GET", "/parts/" + partID, null) == 200;
+				} else if (choice < 9) {
+					String query = URLEncoder.encode(Integer.toString(100 + random.nextInt(900)), "UTF-8");
+					return send("GET", "/parts?search=" + query, null) == 200;
+				} else {
+					int instock = random.nextInt(1000);
+					String body = "{\"instock\":" + instock + ",\"min\":0,\"max\":1000}";
+					return send("PUT", "/parts/" + partID, body) == 200;
+				}
+			} catch (IOException e) {
+				return false;
+			}
+		}
+		private int send(String method, String path, String body) throws IOException {
+			HttpURLConnection connection = (HttpURLConnection)new URL(base + path).openConnection();
+			connection.setRequestMethod(method);
+			if (body != null) {
+				connection.setDoOutput(true);
+				connection.setRequestProperty("Content-Type", "application/json");
+				try (OutputStream out = connection.getOutputStream()) {
+					out.write(body.getBytes(StandardCharsets.UTF_8));
+				}
+			}
+			int status = connection.getResponseCode();
+			// read the whole response so the connection can be used again
+			InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+			if (in != null) {
+				try (InputStream response = in) {
+					byte[] buffer = new byte[8192];
+					while (response.read(buffer) > 0) {
+						// the body is not needed
+					}
+				}
+			}
+			return status;
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package inventory.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import inventory.model.Part;
+import inventory.model.Product;
+
+/**
+ * Lookups and searches on an inventory of each catalog size.
+ * @author Aaron Echols
+ *
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class InventoryBenchmark {
+
+	// moves through the prepared keys, a different one for each call
+	private int next;
+
+	@Benchmark
+	public Part lookupPartByName(CatalogState catalog) {
+		return catalog.inventory.lookupPart(catalog.partNames[next++ & (CatalogState.KEYS - 1)]);
+	}
+	@Benchmark
+	public Part lookupPartByID(CatalogState catalog) {
+		return catalog.inventory.lookupPart(catalog.partIDs[next++ & (CatalogState.KEYS - 1)]);
+	}
+	@Benchmark
+	public List<Part> searchForPartByString(CatalogState catalog) {
+		return catalog.inventory.searchForPartByString(catalog.partQueries[next++ & (CatalogState.KEYS - 1)]);
+	}
+	@Benchmark
+	public List<Product> searchForProductByString(CatalogState catalog) {
+		return catalog.inventory.searchForProductByString(catalog.productQueries[next++ & (CatalogState.KEYS - 1)]);
+	}
+}
@@ -0,0 +1,102 @@
+package inventory.bench;
+
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.text.ParseException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import inventory.util.PriceFormatter;
+
+/**
+ * Formatting prices for the tables and the search index, and parsing them back from the dialogs.
+ * The numberFormat benchmarks measure the NumberFormat the formatter used before, with one
+ * per thread since it is not thread safe, as the baseline for the hand written formatter.
+ * @author Aaron Echols
+ *
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PriceFormatterBenchmark {
+
+	private final double[] prices = new double[1024];
+	private final long[] cents = new long[1024];
+	private final String[] priceStrings = new String[1024];
+	private final StringBuilder buffer = new StringBuilder(32);
+	private NumberFormat currency;
+	private int next;
+
+	@Setup
+	public void createPrices() {
+		Random random = new Random(42);
+		for (int i = 0; i < prices.length; i++) {
+			cents[i] = random.nextInt(10_000_000);
+			prices[i] = cents[i] / 100.0;
+			priceStrings[i] = PriceFormatter.formatCents(cents[i]);
+		}
+		currency = NumberFormat.getCurrencyInstance();
+		if (currency instanceof DecimalFormat) {
+			((DecimalFormat)currency).setParseBigDecimal(true);
+		}
+	}
+
+	@Benchmark
+	public String format() {
+		return PriceFormatter.format(prices[next++ & 1023]);
+	}
+	@Benchmark
+	public String formatCents() {
+		return PriceFormatter.formatCents(cents[next++ & 1023]);
+	}
+	@Benchmark
+	public StringBuilder appendCents() {
+		buffer.setLength(0);
+		return PriceFormatter.appendCents(buffer, cents[next++ & 1023]);
+	}
+	@Benchmark
+	public String numberFormatFormat() {
+		return currency.format(BigDecimal.valueOf(cents[next++ & 1023], 2));
+	}
+
+	@Benchmark
+	public double parse() throws ParseException {
+		return PriceFormatter.parse(priceStrings[next++ & 1023]);
+	}
+	@Benchmark
+	public long parseCents() {
+		return PriceFormatter.tryParseCents(priceStrings[next++ & 1023]);
+	}
+	@Benchmark
+	public long numberFormatParse() throws ParseException {
+		return ((BigDecimal)currency.parse(priceStrings[next++ & 1023])).movePointRight(2).longValue();
+	}
+	/** Text typed into a price field that is not yet an amount. */
+	@Benchmark
+	public long parseInvalid() {
+		return PriceFormatter.tryParseCents("abc");
+	}
+	@Benchmark
+	public long numberFormatParseInvalid() {
+		try {
+			return ((BigDecimal)currency.parse("abc")).movePointRight(2).longValue();
+		} catch (ParseException e) {
+			return PriceFormatter.INVALID;
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package inventory.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import inventory.model.Inhouse;
+import inventory.model.Part;
+import inventory.model.Product;
+
+/**
+ * Setting the price of a product, which is checked against the cost of its parts,
+ * and adding and removing units of a part in its bill of materials.
+ * @author Aaron Echols
+ *
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ProductBenchmark {
+
+	@Param({"1", "10", "100", "1000"})
+	public int partsPerProduct;
+
+	private Product product;
+	private Part fastener;
+	private double[] prices;
+	private long[] priceCents;
+	private int next;
+
+	@Setup
+	public void createProduct() {
+		List<Part> parts = new ArrayList<>(partsPerProduct);
+		for (int i = 0; i < partsPerProduct; i++) {
+			parts.add(new Inhouse("Part " + i, 1.25, 10, 0, 100, i));
+		}
+		product = new Product("Product", partsPerProduct * 2, 1, 0, 10, parts);
+		fastener = parts.get(parts.size() - 1);
+
+		// every price is above the cost of the parts, so none are refused
+		prices = new double[16];
+		priceCents = new long[16];
+		for (int i = 0; i < prices.length; i++) {
+			prices[i] = partsPerProduct * 2 + i * 0.25;
+			priceCents[i] = partsPerProduct * 200L + i * 25;
+		}
+	}
+
+	@Benchmark
+	public void setPrice() {
+		product.setPrice(prices[next++ & 15]);
+	}
+
+	@Benchmark
+	public void setPriceCents() {
+		product.setPriceCents(priceCents[next++ & 15]);
+	}
+
+	/** Add and remove a hundred units of a part, which changes one bill of materials line. */
+	@Benchmark
+	public long addAndRemoveUnits() {
+		product.addPart(fastener, 100);
+		product.removePart(fastener.getPartID(), 100);
+		return product.getPartsCostCents();
+	}
+
+	@Benchmark
+	public Part lookupPart() {
+		return product.lookupPart(fastener.getPartID());
+	}
+}
@@ -0,0 +1,56 @@
+package inventory.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import inventory.model.Product;
+
+/**
+ * Several threads reserving and releasing the parts of products at the same time,
+ * as the terminals on a production floor would, on an inventory of each catalog size.
+ * @author Aaron Echols
+ *
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Thread)
+public class ReservationBenchmark {
+
+	private Product[] products;
+	// moves through the prepared products, a different one for each call
+	private int next;
+
+	@Setup
+	public void pickProducts(CatalogState catalog) {
+		List<Product> catalogProducts = catalog.inventory.getProductSnapshot();
+		products = new Product[CatalogState.KEYS];
+		for (int i = 0; i < products.length; i++) {
+			products[i] = catalogProducts.get((i * 7919) % catalogProducts.size());
+		}
+	}
+
+	/** A unit is built and then cancelled, so the stock stays the same between calls. */
+	@Benchmark
+	public boolean reserveAndRelease(CatalogState catalog) {
+		Product product = products[next++ & (CatalogState.KEYS - 1)];
+		if (!catalog.inventory.reserveParts(product, 1)) return false;
+		catalog.inventory.releaseParts(product, 1);
+		return true;
+	}
+}
@@ -0,0 +1,65 @@
+package inventory.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import inventory.model.Part;
+import inventory.model.StockAlert;
+import inventory.model.StockAlerts;
+
+/**
+ * Moving the stock of a part in and out of its limits while the alerts follow it,
+ * and reading the worst alerts, on an inventory of each catalog size.
+ * @author Aaron Echols
+ *
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class StockAlertsBenchmark {
+
+	private StockAlerts alerts;
+	private Part[] parts;
+	// moves through the prepared parts, a different one for each call
+	private int next;
+
+	@Setup
+	public void createAlerts(CatalogState catalog) {
+		alerts = new StockAlerts(catalog.inventory);
+		parts = new Part[CatalogState.KEYS];
+		for (int i = 0; i < parts.length; i++) {
+			parts[i] = catalog.inventory.lookupPart(catalog.partIDs[i]);
+		}
+	}
+	@TearDown
+	public void closeAlerts() {
+		alerts.close();
+	}
+
+	/** The part goes between empty, which is low, and full. */
+	@Benchmark
+	public int setPartStock() {
+		Part part = parts[next++ & (CatalogState.KEYS - 1)];
+		part.setInstock(part.getInstock() == part.getMin() ? part.getMax() : part.getMin());
+		return alerts.getLowStockCount();
+	}
+	@Benchmark
+	public List<StockAlert> topTenLow() {
+		return alerts.getLowStock(10);
+	}
+}
@@ -1,16 +1,22 @@
 package inventory;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
 
 import inventory.model.Inhouse;
 import inventory.model.Inventory;
+import inventory.model.InventoryJournal;
 import inventory.model.Outsourced;
 import inventory.model.Part;
 import inventory.model.Product;
+import inventory.server.InventoryServer;
 import inventory.view.MainScreenController;
+import inventory.view.ObservableInventory;
 import inventory.view.PartDialogController;
 import inventory.view.ProductDialogController;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.image.Image;
@@ -24,10 +30,54 @@ public class InventoryApplication extends Application {
     private Stage primaryStage;
     private BorderPane root;
     private Inventory inventory;
+    private ObservableInventory observableInventory;
+    private InventoryJournal journal;
+    private InventoryServer server;
+    
+    // the snapshot of the inventory and the journal of changes since, kept in the working directory
+    private static final String SNAPSHOT_FILE = "inventory.snapshot";
+    private static final String JOURNAL_FILE = "inventory.journal";
+    // set to a port number to let other systems use the inventory over HTTP while the application runs
+    private static final String HTTP_PORT_PROPERTY = "inventory.http.port";
     
     public InventoryApplication() {
-    	inventory = new Inventory();
+    	// columnar, so a large saved catalog loads without creating every part
+    	inventory = new Inventory(true);
+    	// changes made on other threads reach the tables on the JavaFX Application Thread
+    	observableInventory = new ObservableInventory(inventory, change -> {
+    		if (Platform.isFxApplicationThread()) {
+    			change.run();
+    		} else {
+    			Platform.runLater(change);
+    		}
+    	});
     	
+    	// rebuild the inventory from the snapshot and journal of earlier runs
+    	try {
+    		journal = InventoryJournal.open(Paths.get(JOURNAL_FILE), Paths.get(SNAPSHOT_FILE), inventory);
+    	} catch (IOException e) {
+    		e.printStackTrace();
+    	}
+    	// only a brand new inventory starts out with the sample data
+    	if (journal == null || journal.isNew()) {
+    		addSampleData();
+    	}
+    	
+    	String port = System.getProperty(HTTP_PORT_PROPERTY);
+    	if (port != null) {
+    		try {
+    			server = new InventoryServer(inventory, new InetSocketAddress(Integer.parseInt(port)));
+    			server.start();
+    		} catch (IOException | NumberFormatException e) {
+    			e.printStackTrace();
+    		}
+    	}
+    }
+    
+    /**
+     * Add the sample parts and products to the inventory.
+     */
+    private void addSampleData() {
     	try {
 			// Sample Parts
     		inventory.addPart(new Inhouse("First Part", 1.50, 75, 10, 100, 546));
@@ -46,10 +96,7 @@ public class InventoryApplication extends Application {
     		product1.addPart(inventory.lookupPart("Ninth Part"));
     		
     		Product product2 = new Product("Second Product", 250, 49, 10, 100, inventory.lookupPart("Sixth Part"));
-    		product2.addPart(inventory.lookupPart("Sixth Part"));
-    		product2.addPart(inventory.lookupPart("Sixth Part"));
-    		product2.addPart(inventory.lookupPart("Sixth Part"));
-    		product2.addPart(inventory.lookupPart("Sixth Part"));
+    		product2.addPart(inventory.lookupPart("Sixth Part"), 4);
     		
     		Product product3 = new Product("Third Product", 70, 12, 10, 100, inventory.lookupPart("Tenth Part"));
     		product3.addPart(inventory.lookupPart("Third Part"));
@@ -80,6 +127,30 @@ public class InventoryApplication extends Application {
         initRootLayout();
 	}
 	
+	/**
+	 * Stop the HTTP server, if running, and save the inventory to the snapshot before the application exits,
+	 * so the next start does not have to replay the journal.
+	 */
+	@Override
+	public void stop() {
+		if (server != null) {
+			server.close();
+		}
+		if (journal != null) {
+			try {
+				journal.checkpoint();
+			} catch (IOException e) {
+				// the journal still holds every change
+				e.printStackTrace();
+			}
+			try {
+				journal.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+	
 	public static void main(String[] args) {
 		launch(args);
 	}
@@ -91,6 +162,13 @@ public class InventoryApplication extends Application {
     public Inventory getInventory() {
     	return inventory;
     }
+    /**
+     * 
+     * @return the main inventory as shown in the tables
+     */
+    public ObservableInventory getObservableInventory() {
+    	return observableInventory;
+    }
     
 	/**
 	 * 
@@ -200,7 +278,7 @@ public class InventoryApplication extends Application {
 			// Initialize the product dialog controller and set up the dialog screen
 			// with a reference to the product dialog stage, the inventory, and any product selected
 			ProductDialogController controller = loader.getController();
-			controller.setDialogScreen(productDialogStage, inventory, product);
+			controller.setDialogScreen(productDialogStage, observableInventory, product);
 			
 			productDialogStage.showAndWait();
 			
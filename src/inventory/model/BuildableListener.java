@@ -0,0 +1,19 @@
+package inventory.model;
+
+/**
+ * Receives the changes to the number of units of each product that can be built,
+ * as worked out by {@link BuildableQuantities}.
+ * @author Aaron Echols
+ *
+ */
+@FunctionalInterface
+public interface BuildableListener {
+
+	/**
+	 * Called after the number of units of a product that can be built changed,
+	 * on the thread that changed the stock.
+	 * @param product the product
+	 * @param quantity the number of units that can be built now
+	 */
+	void buildableChanged(Product product, int quantity);
+}
@@ -0,0 +1,591 @@
+package inventory.model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Works out how many units of each product in an inventory can be built from the parts
+ * and assemblies in stock, and keeps the numbers up to date as the stock changes.
+ * Each number is how many of one product could be built on its own, as far as its scarcest line allows.
+ * Locks are taken in the order: the inventory, then this engine, then the inventory's part usage index.
+ * @author Aaron Echols
+ *
+ */
+public final class BuildableQuantities implements AutoCloseable {
+
+	// fewer products than this are worked out on the calling thread
+	private static final int PARALLEL_THRESHOLD = 4096;
+	private static final int NOT_TRACKED = -1;
+	private static final int[] NO_ASSEMBLIES = {};
+
+	private final Inventory inventory;
+	private final ForkJoinPool pool;
+
+	// the stock above the minimum of each of the inventory's parts, keyed by part ID number
+	private IntIntMap stock = new IntIntMap();
+	// the tracked products, with the slot of each keyed by product ID number; a removed
+	// product leaves an empty slot that the next added product takes
+	private Product[] products = new Product[16];
+	private int[] productStock = new int[16];
+	private int[] buildable = new int[16];
+	private int slotCount;
+	private int[] freeSlots = new int[4];
+	private int freeCount;
+	private final IntIntMap slots = new IntIntMap();
+	// the level of each product, one above its highest assembly, and the ID numbers of
+	// the assemblies each product was last seen to contain
+	private int[] levels = new int[16];
+	private int[][] assemblyIDs = new int[16][];
+	// the slots of the products that contain each product as an assembly, keyed by the
+	// assembly's ID number whether or not a product with that ID number is tracked
+	private final Map<Integer, Set<Integer>> users = new HashMap<>();
+	// the products to work out again, lowest level first so that each is worked out once
+	private final BitSet dirty = new BitSet();
+	private boolean batching;
+
+	private volatile BuildableListener[] listeners = NO_LISTENERS;
+	private static final BuildableListener[] NO_LISTENERS = {};
+
+	private final InventoryListener inventoryWatcher = new InventoryListener() {
+		@Override
+		public void partAdded(Part part) {
+			stockChanged(part.getPartID(), available(part));
+		}
+		@Override
+		public void partsLoaded(int[] partIDs) {
+			synchronized (BuildableQuantities.this) {
+				loadStock();
+				dirty.set(0, slotCount);
+			}
+			finishChange();
+		}
+		@Override
+		public void partRemoved(Part part) {
+			// another part may still have the same ID number
+			Part current = inventory.lookupPart(part.getPartID());
+			stockChanged(part.getPartID(), current == null ? NOT_TRACKED : available(current));
+		}
+		@Override
+		public void partReplaced(Part oldPart, Part newPart) {
+			stockChanged(newPart.getPartID(), available(newPart));
+		}
+		@Override
+		public void partChanged(Part part) {
+			stockChanged(part.getPartID(), available(part));
+		}
+		@Override
+		public void productAdded(Product product) {
+			synchronized (BuildableQuantities.this) {
+				track(product);
+			}
+			finishChange();
+		}
+		@Override
+		public void productRemoved(Product product) {
+			synchronized (BuildableQuantities.this) {
+				untrack(product);
+			}
+			finishChange();
+		}
+		@Override
+		public void productReplaced(Product oldProduct, Product newProduct) {
+			synchronized (BuildableQuantities.this) {
+				untrack(oldProduct);
+				track(newProduct);
+			}
+			finishChange();
+		}
+		@Override
+		public void batchStarted() {
+			synchronized (BuildableQuantities.this) {
+				batching = true;
+			}
+		}
+		@Override
+		public void batchFinished() {
+			synchronized (BuildableQuantities.this) {
+				batching = false;
+			}
+			finishChange();
+		}
+	};
+	// follows the lines and stock of every tracked product
+	private final ProductListener productWatcher = new ProductListener() {
+		@Override
+		public void productChanged(Product product) {
+			synchronized (BuildableQuantities.this) {
+				int slot = slotOf(product);
+				if (slot < 0 || productStock[slot] == product.getInstock()) return;
+				productStock[slot] = product.getInstock();
+				markParentsDirty(slot);
+			}
+			finishChange();
+		}
+		@Override
+		public void partAdded(Product product, Part part, int quantity) {
+			linesChanged(product, false);
+		}
+		@Override
+		public void partRemoved(Product product, Part part, int quantity) {
+			linesChanged(product, false);
+		}
+		@Override
+		public void assemblyAdded(Product product, Product assembly, int quantity) {
+			linesChanged(product, true);
+		}
+		@Override
+		public void assemblyRemoved(Product product, Product assembly, int quantity) {
+			linesChanged(product, true);
+		}
+	};
+
+	/**
+	 * Start working out the buildable quantities of the products in an inventory,
+	 * in parallel on the common fork-join pool.
+	 * @param inventory the inventory
+	 */
+	public BuildableQuantities(Inventory inventory) {
+		this(inventory, ForkJoinPool.commonPool());
+	}
+	/**
+	 * Start working out the buildable quantities of the products in an inventory.
+	 * @param inventory the inventory
+	 * @param pool the pool to work out all the products on in parallel
+	 */
+	public BuildableQuantities(Inventory inventory, ForkJoinPool pool) {
+		this.inventory = inventory;
+		this.pool = pool;
+
+		synchronized (inventory) {
+			inventory.addListener(inventoryWatcher);
+			synchronized (this) {
+				loadStock();
+				for (Product product : inventory.getProductSnapshot()) {
+					track(product);
+				}
+				refreshAll();
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param productID the ID number of a product in the inventory
+	 * @return the number of units of the product that can be built from the stock,
+	 * or -1 if the product is not in the inventory
+	 */
+	public synchronized int getBuildable(int productID) {
+		int slot = slots.get(productID, NOT_TRACKED);
+		return slot == NOT_TRACKED ? -1 : buildable[slot];
+	}
+	/**
+	 *
+	 * @param product a product in the inventory
+	 * @return the number of units of the product that can be built from the stock,
+	 * or -1 if the product is not in the inventory
+	 */
+	public synchronized int getBuildable(Product product) {
+		int slot = slotOf(product);
+		return slot < 0 ? -1 : buildable[slot];
+	}
+	/**
+	 * Work out every product again, in parallel. The listeners are told about the products that changed.
+	 */
+	public void refresh() {
+		List<Change> changes;
+		synchronized (this) {
+			changes = refreshAll();
+		}
+		tell(changes);
+	}
+
+	/**
+	 * Be told about every change to a buildable quantity from now on.
+	 * @param listener the listener to add
+	 */
+	public synchronized void addListener(BuildableListener listener) {
+		BuildableListener[] current = listeners;
+		BuildableListener[] updated = Arrays.copyOf(current, current.length + 1);
+		updated[current.length] = listener;
+		listeners = updated;
+	}
+	/**
+	 * Stop telling a listener about changes. A listener added more than once is removed once.
+	 * @param listener the listener to remove
+	 */
+	public synchronized void removeListener(BuildableListener listener) {
+		BuildableListener[] current = listeners;
+		for (int i = 0; i < current.length; i++) {
+			if (current[i] == listener) {
+				BuildableListener[] updated = Arrays.copyOf(current, current.length - 1);
+				System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+				listeners = updated;
+				return;
+			}
+		}
+	}
+	/**
+	 * Stop following the inventory. The quantities are no longer kept up to date.
+	 */
+	@Override
+	public void close() {
+		synchronized (inventory) {
+			inventory.removeListener(inventoryWatcher);
+			synchronized (this) {
+				for (int slot = 0; slot < slotCount; slot++) {
+					if (products[slot] != null) products[slot].removeListener(productWatcher);
+				}
+			}
+		}
+	}
+
+	// ------------------------ CHANGES ------------------------
+
+	private void stockChanged(int partID, int available) {
+		synchronized (this) {
+			if (stock.get(partID, NOT_TRACKED) == available) return;
+			if (available == NOT_TRACKED) {
+				stock.remove(partID);
+			} else {
+				stock.put(partID, available);
+			}
+			for (Product product : inventory.partUsageIndex().productsUsing(partID)) {
+				markDirty(product);
+			}
+		}
+		finishChange();
+	}
+	private void linesChanged(Product product, boolean assemblies) {
+		synchronized (this) {
+			int slot = slotOf(product);
+			if (slot < 0) return;
+			if (assemblies) linkAssemblies(slot);
+			dirty.set(slot);
+		}
+		finishChange();
+	}
+	/**
+	 * Work out the products marked as changed, unless a batch is under way,
+	 * and tell the listeners after letting go of the lock.
+	 */
+	private void finishChange() {
+		List<Change> changes;
+		synchronized (this) {
+			if (batching || dirty.isEmpty()) return;
+			changes = update();
+		}
+		tell(changes);
+	}
+	private void tell(List<Change> changes) {
+		BuildableListener[] current = listeners;
+		if (current.length == 0) return;
+		for (Change change : changes) {
+			for (BuildableListener listener : current) {
+				listener.buildableChanged(change.product, change.quantity);
+			}
+		}
+	}
+
+	private void track(Product product) {
+		if (slots.get(product.getProductID(), NOT_TRACKED) != NOT_TRACKED) return;
+
+		int slot;
+		if (freeCount > 0) {
+			slot = freeSlots[--freeCount];
+		} else {
+			if (slotCount == products.length) grow();
+			slot = slotCount++;
+		}
+		products[slot] = product;
+		productStock[slot] = product.getInstock();
+		buildable[slot] = 0;
+		levels[slot] = 0;
+		assemblyIDs[slot] = NO_ASSEMBLIES;
+		slots.put(product.getProductID(), slot);
+		product.addListener(productWatcher);
+		dirty.set(slot);
+
+		linkAssemblies(slot);
+		// the products that already name it as an assembly now read it
+		markParentsDirty(slot);
+		relevel(parentsOf(slot));
+	}
+	private void untrack(Product product) {
+		int slot = slotOf(product);
+		if (slot < 0) return;
+
+		product.removeListener(productWatcher);
+		for (int productID : assemblyIDs[slot]) {
+			unlink(productID, slot);
+		}
+		Set<Integer> parents = parentsOf(slot);
+		products[slot] = null;
+		assemblyIDs[slot] = null;
+		slots.remove(product.getProductID());
+		dirty.clear(slot);
+		if (freeCount == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+		freeSlots[freeCount++] = slot;
+
+		// the products that name it as an assembly now only read its own stock
+		for (int parent : parents) {
+			dirty.set(parent);
+		}
+		relevel(parents);
+	}
+	/**
+	 * Bring the links from a product to its assemblies up to date with its assembly lines,
+	 * and its level and the levels above it with them.
+	 */
+	private void linkAssemblies(int slot) {
+		List<Product> assemblies = products[slot].getAssemblies();
+		int[] linked = assemblies.isEmpty() ? NO_ASSEMBLIES : new int[assemblies.size()];
+		for (int i = 0; i < linked.length; i++) {
+			linked[i] = assemblies.get(i).getProductID();
+		}
+		int[] old = assemblyIDs[slot];
+		if (Arrays.equals(old, linked)) return;
+
+		for (int productID : old) {
+			unlink(productID, slot);
+		}
+		for (int productID : linked) {
+			users.computeIfAbsent(productID, id -> new HashSet<>()).add(slot);
+		}
+		assemblyIDs[slot] = linked;
+		relevel(Collections.singleton(slot));
+	}
+	private void unlink(int productID, int slot) {
+		Set<Integer> parents = users.get(productID);
+		if (parents == null) return;
+		parents.remove(slot);
+		if (parents.isEmpty()) users.remove(productID);
+	}
+	/**
+	 * Work out the levels of some products again from their assemblies, and the levels of
+	 * the products above each one whose level changed.
+	 */
+	private void relevel(Collection<Integer> changed) {
+		ArrayDeque<Integer> pending = new ArrayDeque<>(changed);
+		while (!pending.isEmpty()) {
+			int slot = pending.poll();
+			if (products[slot] == null) continue;
+
+			int level = 0;
+			for (int productID : assemblyIDs[slot]) {
+				int child = slots.get(productID, NOT_TRACKED);
+				if (child != NOT_TRACKED) level = Math.max(level, levels[child] + 1);
+			}
+			// guards against a loop through products that share an ID number
+			level = Math.min(level, slotCount);
+			if (level == levels[slot]) continue;
+
+			levels[slot] = level;
+			pending.addAll(parentsOf(slot));
+		}
+	}
+	private Set<Integer> parentsOf(int slot) {
+		Set<Integer> parents = users.get(products[slot].getProductID());
+		return parents == null ? Collections.<Integer>emptySet() : parents;
+	}
+	private void markDirty(Product product) {
+		int slot = slotOf(product);
+		if (slot >= 0) dirty.set(slot);
+	}
+	private void markParentsDirty(int slot) {
+		for (int parent : parentsOf(slot)) {
+			dirty.set(parent);
+		}
+	}
+	private int slotOf(Product product) {
+		int slot = slots.get(product.getProductID(), NOT_TRACKED);
+		return slot != NOT_TRACKED && products[slot] == product ? slot : -1;
+	}
+	private void grow() {
+		int size = products.length * 2;
+		products = Arrays.copyOf(products, size);
+		productStock = Arrays.copyOf(productStock, size);
+		buildable = Arrays.copyOf(buildable, size);
+		levels = Arrays.copyOf(levels, size);
+		assemblyIDs = Arrays.copyOf(assemblyIDs, size);
+	}
+	private static int available(Part part) {
+		return available(part.getInstock(), part.getMin());
+	}
+	/**
+	 * The stock a reservation can take, never below zero, so it is not taken for {@link #NOT_TRACKED}.
+	 */
+	private static int available(int instock, int min) {
+		return (int)Math.max(Math.min((long)instock - min, Integer.MAX_VALUE), 0);
+	}
+	private void loadStock() {
+		PartColumns columns = inventory.partColumns();
+		stock = new IntIntMap();
+		stock.ensureCapacity(columns.count);
+		for (int i = 0; i < columns.count; i++) {
+			stock.put(columns.partIDs[i], available(columns.instocks[i], columns.mins[i]));
+		}
+	}
+
+	// ------------------------ WORKING OUT ------------------------
+
+	/**
+	 * Work out the marked products lowest level first, marking the products above
+	 * a product whose quantity changed. When most products are marked they are all
+	 * worked out again in parallel instead.
+	 */
+	private List<Change> update() {
+		if (dirty.cardinality() > PARALLEL_THRESHOLD && dirty.cardinality() > slotCount / 4) {
+			return refreshAll();
+		}
+
+		List<Change> changes = new ArrayList<>();
+		PriorityQueue<Integer> queue = new PriorityQueue<>(Math.max(1, dirty.cardinality()),
+				(a, b) -> Integer.compare(levels[a], levels[b]));
+		for (int slot = dirty.nextSetBit(0); slot >= 0; slot = dirty.nextSetBit(slot + 1)) {
+			queue.add(slot);
+		}
+		while (!queue.isEmpty()) {
+			int slot = queue.poll();
+			if (!dirty.get(slot)) continue;
+			dirty.clear(slot);
+
+			int quantity = compute(slot);
+			if (quantity != buildable[slot]) {
+				buildable[slot] = quantity;
+				changes.add(new Change(products[slot], quantity));
+				for (int parent : parentsOf(slot)) {
+					if (!dirty.get(parent)) {
+						dirty.set(parent);
+						queue.add(parent);
+					}
+				}
+			}
+		}
+		return changes;
+	}
+	/**
+	 * Work out every product, one level at a time, in parallel within a level.
+	 */
+	private List<Change> refreshAll() {
+		dirty.clear();
+
+		// the slots in order of level
+		int maxLevel = 0;
+		for (int slot = 0; slot < slotCount; slot++) {
+			if (products[slot] != null) maxLevel = Math.max(maxLevel, levels[slot]);
+		}
+		int[] levelStarts = new int[maxLevel + 2];
+		for (int slot = 0; slot < slotCount; slot++) {
+			if (products[slot] != null) levelStarts[levels[slot] + 1]++;
+		}
+		for (int level = 0; level <= maxLevel; level++) {
+			levelStarts[level + 1] += levelStarts[level];
+		}
+		int[] order = new int[levelStarts[maxLevel + 1]];
+		int[] next = Arrays.copyOf(levelStarts, maxLevel + 1);
+		for (int slot = 0; slot < slotCount; slot++) {
+			if (products[slot] != null) order[next[levels[slot]]++] = slot;
+		}
+
+		int[] quantities = new int[slotCount];
+		boolean telling = listeners.length > 0;
+		List<Change> changes = telling ? new ArrayList<>() : Collections.<Change>emptyList();
+		for (int level = 0; level <= maxLevel; level++) {
+			int from = levelStarts[level];
+			int to = levelStarts[level + 1];
+			if (to - from < PARALLEL_THRESHOLD) {
+				computeAll(order, from, to, quantities);
+			} else {
+				pool.invoke(new ComputeTask(order, from, to, quantities));
+			}
+			// the level above reads these
+			for (int i = from; i < to; i++) {
+				int slot = order[i];
+				if (quantities[slot] != buildable[slot]) {
+					buildable[slot] = quantities[slot];
+					if (telling) changes.add(new Change(products[slot], buildable[slot]));
+				}
+			}
+		}
+		return changes;
+	}
+	private void computeAll(int[] order, int from, int to, int[] quantities) {
+		for (int i = from; i < to; i++) {
+			quantities[order[i]] = compute(order[i]);
+		}
+	}
+	/**
+	 * Work out how many units of one product can be built. Only reads, so the
+	 * products of one level can be worked out at the same time.
+	 */
+	private int compute(int slot) {
+		Product product = products[slot];
+		long most = Long.MAX_VALUE;
+		for (Part part : product.getPartLines()) {
+			int partID = part.getPartID();
+			long available = stock.get(partID, 0);
+			most = Math.min(most, available / product.getPartQuantity(partID));
+		}
+		for (Product assembly : product.getAssemblies()) {
+			int productID = assembly.getProductID();
+			int child = slots.get(productID, NOT_TRACKED);
+			// an assembly that is not in the inventory can only come from its own stock
+			long available = child == NOT_TRACKED
+					? Math.max(assembly.getInstock(), 0)
+					: Math.max(productStock[child], 0) + (long)buildable[child];
+			most = Math.min(most, available / product.getAssemblyQuantity(productID));
+		}
+		return most == Long.MAX_VALUE ? 0 : (int)Math.min(most, Integer.MAX_VALUE);
+	}
+	/**
+	 * Works out the products of one level, splitting the range among the pool's threads.
+	 */
+	private final class ComputeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int[] order;
+		private final int from;
+		private final int to;
+		private final int[] quantities;
+
+		ComputeTask(int[] order, int from, int to, int[] quantities) {
+			this.order = order;
+			this.from = from;
+			this.to = to;
+			this.quantities = quantities;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= PARALLEL_THRESHOLD) {
+				computeAll(order, from, to, quantities);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new ComputeTask(order, from, middle, quantities), new ComputeTask(order, middle, to, quantities));
+		}
+	}
+	/**
+	 * A product whose buildable quantity changed.
+	 */
+	private static final class Change {
+		private final Product product;
+		private final int quantity;
+
+		Change(Product product, int quantity) {
+			this.product = product;
+			this.quantity = quantity;
+		}
+	}
+}
@@ -0,0 +1,347 @@
+package inventory.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates a made up catalog of parts and products for load and scale testing.
+ *
+ * The same seed and settings always give the same catalog, whether it is added to an
+ * inventory or written to a CSV file that {@link InventoryImporter} can read.
+ * Part prices follow a log-normal spread around a few dollars, a few suppliers make most of
+ * the outsourced parts, most products are made from only a few parts, and a product may use
+ * the same part more than once. Every product is priced above the cost of its parts.
+ * @author Aaron Echols
+ *
+ */
+public final class CatalogGenerator {
+
+	// parts and products are added to an inventory this many at a time, one change event each
+	private static final int CHUNK_SIZE = 4096;
+	// the median part price is five dollars
+	private static final double PRICE_MEDIAN_CENTS = 500;
+	private static final double PRICE_SPREAD = 1.2;
+	private static final long MAX_PRICE_CENTS = 10_000_000;
+
+	private static final String[] MATERIALS = {"Steel", "Brass", "Aluminum", "Copper", "Nylon", "Rubber",
+			"Plastic", "Titanium", "Zinc", "Carbon", "Ceramic", "Stainless"};
+	private static final String[] ITEMS = {"Bolt", "Nut", "Washer", "Bracket", "Gear", "Spring", "Bearing",
+			"Hinge", "Valve", "Gasket", "Shaft", "Pulley", "Clamp", "Rivet", "Bushing", "Sprocket"};
+	private static final String[] PRODUCTS = {"Assembly", "Kit", "Module", "Unit", "Frame", "Housing", "Drive", "Pump"};
+	private static final String[] COMPANIES = {"Acme", "Apex", "Summit", "Pioneer", "Keystone", "Liberty",
+			"Atlas", "Frontier", "Heritage", "Pinnacle"};
+	private static final String[] COMPANY_TYPES = {"Supply", "Industries", "Manufacturing", "Components", "Fasteners"};
+
+	private final long seed;
+	private int parts = 1000;
+	private int products = 100;
+	private double inhouseRatio = 0.5;
+	private int machines = 50;
+	private int suppliers = 100;
+	private int minPartsPerProduct = 1;
+	private int maxPartsPerProduct = 10;
+	private double nameCollisionRate = 0;
+
+	/**
+	 * Create a generator of 1000 parts and 100 products, half of the parts made in house,
+	 * with no repeated names.
+	 * @param seed the seed of the random numbers, the same seed gives the same catalog
+	 */
+	public CatalogGenerator(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 *
+	 * @param parts the number of parts to generate
+	 * @throws IllegalArgumentException if the number is negative
+	 */
+	public void setParts(int parts) throws IllegalArgumentException {
+		if (parts < 0) {
+			throw new IllegalArgumentException("The number of parts cannot be negative.");
+		}
+		this.parts = parts;
+	}
+	/**
+	 *
+	 * @param products the number of products to generate
+	 * @throws IllegalArgumentException if the number is negative
+	 */
+	public void setProducts(int products) throws IllegalArgumentException {
+		if (products < 0) {
+			throw new IllegalArgumentException("The number of products cannot be negative.");
+		}
+		this.products = products;
+	}
+	/**
+	 *
+	 * @param inhouseRatio the share of parts made in house, from 0 to 1, the rest are outsourced
+	 * @throws IllegalArgumentException if the share is not from 0 to 1
+	 */
+	public void setInhouseRatio(double inhouseRatio) throws IllegalArgumentException {
+		if (!(inhouseRatio >= 0 && inhouseRatio <= 1)) {
+			throw new IllegalArgumentException("The share of parts made in house needs to be from 0 to 1.");
+		}
+		this.inhouseRatio = inhouseRatio;
+	}
+	/**
+	 *
+	 * @param machines the number of machines that make the in house parts
+	 * @throws IllegalArgumentException if the number is less than one
+	 */
+	public void setMachines(int machines) throws IllegalArgumentException {
+		if (machines < 1) {
+			throw new IllegalArgumentException("There needs to be at least one machine.");
+		}
+		this.machines = machines;
+	}
+	/**
+	 *
+	 * @param suppliers the number of different companies that make the outsourced parts
+	 * @throws IllegalArgumentException if the number is less than one
+	 */
+	public void setSuppliers(int suppliers) throws IllegalArgumentException {
+		if (suppliers < 1) {
+			throw new IllegalArgumentException("There needs to be at least one supplier.");
+		}
+		this.suppliers = suppliers;
+	}
+	/**
+	 * Set the range of the number of parts in each product.
+	 * Products with fewer parts are more common than products with many.
+	 * @param min the fewest parts in a product
+	 * @param max the most parts in a product
+	 * @throws IllegalArgumentException if min is less than one or greater than max
+	 */
+	public void setPartsPerProduct(int min, int max) throws IllegalArgumentException {
+		if (min < 1 || min > max) {
+			throw new IllegalArgumentException("A product needs at least one part, and the minimum cannot be greater than the maximum.");
+		}
+		this.minPartsPerProduct = min;
+		this.maxPartsPerProduct = max;
+	}
+	/**
+	 *
+	 * @param nameCollisionRate the share of parts and products that are given the name of an earlier one, from 0 to 1
+	 * @throws IllegalArgumentException if the share is not from 0 to 1
+	 */
+	public void setNameCollisionRate(double nameCollisionRate) throws IllegalArgumentException {
+		if (!(nameCollisionRate >= 0 && nameCollisionRate <= 1)) {
+			throw new IllegalArgumentException("The share of repeated names needs to be from 0 to 1.");
+		}
+		this.nameCollisionRate = nameCollisionRate;
+	}
+
+	/**
+	 * Add the catalog to an inventory, a few thousand parts or products at a time.
+	 * @param inventory the inventory to add to
+	 * @throws IllegalStateException if there are products to generate but no parts
+	 */
+	public void generate(Inventory inventory) throws IllegalStateException {
+		InventorySink sink = new InventorySink(inventory);
+		generate(sink);
+		sink.flush();
+	}
+	/**
+	 * Write the catalog to a CSV file encoded in UTF-8, to be imported into an empty inventory.
+	 * The parts are numbered from 1, and the products list their parts by ID number.
+	 * Nothing is held in memory but the part prices, so very large catalogs can be written.
+	 * @param file the file to write, replaced if it exists
+	 * @throws IOException if the file cannot be written
+	 * @throws IllegalStateException if there are products to generate but no parts
+	 */
+	public void writeCsv(Path file) throws IOException, IllegalStateException {
+		try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			generate(new CsvSink(out));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Draw every part and then every product, and hand them to the sink.
+	 */
+	private void generate(Sink sink) {
+		if (products > 0 && parts == 0) {
+			throw new IllegalStateException("Products cannot be generated without parts.");
+		}
+		Random random = new Random(seed);
+		long[] partPrices = new long[parts];
+
+		// loop through the parts
+		for (int i = 0; i < parts; i++) {
+			boolean inhouse = random.nextDouble() < inhouseRatio;
+			String name = partName(collide(random, i));
+			long cents = Math.min(MAX_PRICE_CENTS,
+					Math.max(1, Math.round(PRICE_MEDIAN_CENTS * Math.exp(PRICE_SPREAD * random.nextGaussian()))));
+			int max = 10 + random.nextInt(491);
+			int min = random.nextInt(max / 4 + 1);
+			int instock = min + random.nextInt(max - min + 1);
+			partPrices[i] = cents;
+			if (inhouse) {
+				sink.inhouse(i, name, cents, instock, min, max, 1 + random.nextInt(machines));
+			} else {
+				sink.outsourced(i, name, cents, instock, min, max, supplierName(skewed(random, suppliers)));
+			}
+		}
+
+		// loop through the products
+		int[] contained = new int[maxPartsPerProduct];
+		for (int i = 0; i < products; i++) {
+			String name = productName(collide(random, i));
+			int count = minPartsPerProduct + skewed(random, maxPartsPerProduct - minPartsPerProduct + 1);
+			long cost = 0;
+			for (int j = 0; j < count; j++) {
+				contained[j] = random.nextInt(parts);
+				cost += partPrices[contained[j]];
+			}
+			// a markup of 10 to 60 percent over the cost of the parts
+			long cents = cost + (cost * (10 + random.nextInt(51)) + 99) / 100;
+			int max = 5 + random.nextInt(96);
+			int min = random.nextInt(max / 4 + 1);
+			int instock = min + random.nextInt(max - min + 1);
+			sink.product(name, cents, instock, min, max, contained, count);
+		}
+	}
+	/**
+	 *
+	 * @return the index whose name to use, an earlier one when the names collide
+	 */
+	private int collide(Random random, int index) {
+		if (index > 0 && random.nextDouble() < nameCollisionRate) {
+			return random.nextInt(index);
+		}
+		return index;
+	}
+	/**
+	 *
+	 * @return a number from 0 up to bound, where the small numbers are the most likely
+	 */
+	private static int skewed(Random random, int bound) {
+		double u = random.nextDouble();
+		return Math.min(bound - 1, (int)(bound * u * u));
+	}
+	private static String partName(int index) {
+		return MATERIALS[index % MATERIALS.length] + " " + ITEMS[(index / MATERIALS.length) % ITEMS.length] + " " + (index + 1);
+	}
+	private static String productName(int index) {
+		return ITEMS[index % ITEMS.length] + " " + PRODUCTS[(index / ITEMS.length) % PRODUCTS.length] + " " + (index + 1);
+	}
+	private static String supplierName(int index) {
+		int combinations = COMPANIES.length * COMPANY_TYPES.length;
+		String name = COMPANIES[index % COMPANIES.length] + " " + COMPANY_TYPES[(index / COMPANIES.length) % COMPANY_TYPES.length];
+		return index < combinations ? name : name + " " + (index / combinations + 1);
+	}
+
+	/**
+	 * Receives the generated parts and products.
+	 */
+	private interface Sink {
+		void inhouse(int index, String name, long cents, int instock, int min, int max, int machineID);
+		void outsourced(int index, String name, long cents, int instock, int min, int max, String companyName);
+		/**
+		 * @param parts the indexes of the parts in the product, only the first count are used
+		 */
+		void product(String name, long cents, int instock, int min, int max, int[] parts, int count);
+	}
+
+	/**
+	 * Adds the catalog to an inventory.
+	 */
+	private static final class InventorySink implements Sink {
+		private final Inventory inventory;
+		private final List<Part> catalog = new ArrayList<>();
+		private final List<Part> pendingParts = new ArrayList<>(CHUNK_SIZE);
+		private final List<Product> pendingProducts = new ArrayList<>(CHUNK_SIZE);
+
+		InventorySink(Inventory inventory) {
+			this.inventory = inventory;
+		}
+
+		@Override
+		public void inhouse(int index, String name, long cents, int instock, int min, int max, int machineID) {
+			addPart(new Inhouse(name, Money.toDollars(cents), instock, min, max, machineID));
+		}
+		@Override
+		public void outsourced(int index, String name, long cents, int instock, int min, int max, String companyName) {
+			addPart(new Outsourced(name, Money.toDollars(cents), instock, min, max, companyName));
+		}
+		@Override
+		public void product(String name, long cents, int instock, int min, int max, int[] parts, int count) {
+			List<Part> contained = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				contained.add(catalog.get(parts[i]));
+			}
+			pendingProducts.add(new Product(name, Money.toDollars(cents), instock, min, max, contained));
+			if (pendingProducts.size() == CHUNK_SIZE) {
+				flush();
+			}
+		}
+		private void addPart(Part part) {
+			catalog.add(part);
+			pendingParts.add(part);
+			if (pendingParts.size() == CHUNK_SIZE) {
+				flush();
+			}
+		}
+		void flush() {
+			if (!pendingParts.isEmpty()) {
+				inventory.addParts(pendingParts);
+				pendingParts.clear();
+			}
+			if (!pendingProducts.isEmpty()) {
+				inventory.addProducts(pendingProducts);
+				pendingProducts.clear();
+			}
+		}
+	}
+
+	/**
+	 * Writes the catalog as CSV with the columns of {@link InventoryImporter#CSV_HEADER}.
+	 * The generated names and company names never need quoting.
+	 */
+	private static final class CsvSink implements Sink {
+		private final Writer out;
+
+		CsvSink(Writer out) {
+			this.out = out;
+			write(InventoryImporter.CSV_HEADER);
+			write("\n");
+		}
+
+		@Override
+		public void inhouse(int index, String name, long cents, int instock, int min, int max, int machineID) {
+			write("inhouse," + (index + 1) + "," + name + "," + values(cents, instock, min, max) + machineID + ",\n");
+		}
+		@Override
+		public void outsourced(int index, String name, long cents, int instock, int min, int max, String companyName) {
+			write("outsourced," + (index + 1) + "," + name + "," + values(cents, instock, min, max) + companyName + ",\n");
+		}
+		@Override
+		public void product(String name, long cents, int instock, int min, int max, int[] parts, int count) {
+			StringBuilder line = new StringBuilder("product,,").append(name).append(',').append(values(cents, instock, min, max)).append(',');
+			for (int i = 0; i < count; i++) {
+				if (i > 0) line.append(';');
+				line.append(parts[i] + 1);
+			}
+			write(line.append('\n').toString());
+		}
+		private static String values(long cents, int instock, int min, int max) {
+			return Money.toString(cents) + "," + instock + "," + min + "," + max + ",";
+		}
+		private void write(String text) {
+			try {
+				out.write(text);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+}
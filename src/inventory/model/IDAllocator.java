@@ -0,0 +1,31 @@
+package inventory.model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out unique ID numbers to any number of threads from a shared atomic counter.
+ * The numbers follow the order they were asked for, on any thread, so a part or product
+ * created later always has a higher ID number than one created before it. Seeding can
+ * skip numbers, so ID numbers are increasing but not always consecutive.
+ * @author Aaron Echols
+ *
+ */
+final class IDAllocator {
+
+	private final AtomicInteger next = new AtomicInteger(1);
+
+	/**
+	 *
+	 * @return the next unused ID number
+	 */
+	int next() {
+		return next.getAndIncrement();
+	}
+	/**
+	 * Make sure every ID number handed out from now on is greater than one already in use.
+	 * @param usedID an ID number that is already in use, for example by saved data
+	 */
+	void seed(int usedID) {
+		next.accumulateAndGet(usedID + 1, Math::max);
+	}
+}
@@ -1,8 +1,5 @@
 package inventory.model;
 
-import javafx.beans.property.IntegerProperty;
-import javafx.beans.property.SimpleIntegerProperty;
-
 /**
  * An individual part that is made in house.
  * Includes the ID number for the machine the part is made on.
@@ -11,7 +8,7 @@ import javafx.beans.property.SimpleIntegerProperty;
  */
 public class Inhouse extends Part{
 	
-	private IntegerProperty machineID = new SimpleIntegerProperty();
+	private int machineID;
 	
 	/**
 	 * Create a new part that is made in house with default values.
@@ -53,23 +50,28 @@ public class Inhouse extends Part{
 		
 		setMachineID(machineID);
 	}
+	/**
+	 * Restore a part that is made in house and already has an ID number.
+	 * The values are not validated again.
+	 */
+	Inhouse(int partID, String name, long priceCents, int instock, int min, int max, int machineID) {
+		restore(partID, name, priceCents, instock, min, max);
+		this.machineID = machineID;
+	}
 	
 	/**
 	 * 
 	 * @return the ID number of the machine on which this part is made
 	 */
 	public int getMachineID() {
-		return machineID.get();
+		return machineID;
 	}
 	/**
 	 * 
 	 * @param machineID the ID number of the machine on which this part is made
 	 */
 	public void setMachineID(int machineID) {
-		this.machineID.set(machineID);
-	}
-	
-	public IntegerProperty machineIDProperty() {
-		return machineID;
+		this.machineID = machineID;
+		changed();
 	}
 }
\ No newline at end of file
@@ -0,0 +1,130 @@
+package inventory.model;
+
+/**
+ * A small open addressing hash map from int keys to int values. Used where a
+ * map with an entry per part would otherwise box every key and value.
+ * @author Aaron Echols
+ *
+ */
+final class IntIntMap {
+
+	// zero marks an empty key slot, so the zero key is kept in separate fields
+	private int[] keys = new int[8];
+	private int[] values = new int[8];
+	private int count;
+	private boolean hasZero;
+	private int zeroValue;
+
+	/**
+	 *
+	 * @return the number of keys in the map
+	 */
+	int size() {
+		return count + (hasZero ? 1 : 0);
+	}
+	/**
+	 *
+	 * @param key the key to look for
+	 * @param missing the value to return if the key is not in the map
+	 * @return the value for the key, or the missing value
+	 */
+	int get(int key, int missing) {
+		if (key == 0) return hasZero ? zeroValue : missing;
+
+		int mask = keys.length - 1;
+		for (int i = mix(key) & mask; keys[i] != 0; i = (i + 1) & mask) {
+			if (keys[i] == key) return values[i];
+		}
+		return missing;
+	}
+	/**
+	 * Make room for a number of keys at once, so adding them does not rehash the map again and again.
+	 * @param size the number of keys the map will hold
+	 */
+	void ensureCapacity(int size) {
+		int capacity = keys.length;
+		while (size * 2 > capacity) {
+			capacity *= 2;
+		}
+		if (capacity > keys.length) {
+			rehash(capacity);
+		}
+	}
+	/**
+	 * Set the value for a key, replacing any value already there.
+	 * @param key the key
+	 * @param value the value
+	 */
+	void put(int key, int value) {
+		if (key == 0) {
+			hasZero = true;
+			zeroValue = value;
+			return;
+		}
+
+		int mask = keys.length - 1;
+		int i = mix(key) & mask;
+		while (keys[i] != 0) {
+			if (keys[i] == key) {
+				values[i] = value;
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		values[i] = value;
+		// keep the table at most half full
+		if (++count * 2 > keys.length) {
+			rehash(keys.length * 2);
+		}
+	}
+	/**
+	 *
+	 * @param key the key to remove
+	 * @return true if the key was removed, false if it was not in the map
+	 */
+	boolean remove(int key) {
+		if (key == 0) {
+			boolean removed = hasZero;
+			hasZero = false;
+			return removed;
+		}
+
+		int mask = keys.length - 1;
+		int i = mix(key) & mask;
+		while (keys[i] != key) {
+			if (keys[i] == 0) return false;
+			i = (i + 1) & mask;
+		}
+		keys[i] = 0;
+		count--;
+
+		// shift the following entries of the probe sequence back into the gap
+		for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+			int home = mix(keys[j]) & mask;
+			if (((j - home) & mask) >= ((j - i) & mask)) {
+				keys[i] = keys[j];
+				values[i] = values[j];
+				keys[j] = 0;
+				i = j;
+			}
+		}
+		return true;
+	}
+
+	private void rehash(int capacity) {
+		int[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new int[capacity];
+		values = new int[capacity];
+		count = 0;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != 0) put(oldKeys[i], oldValues[i]);
+		}
+	}
+
+	private static int mix(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
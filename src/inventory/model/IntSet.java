@@ -0,0 +1,121 @@
+package inventory.model;
+
+/**
+ * A small open addressing hash set of int values. Used by the inventory indexes
+ * so that large posting lists do not box every ID number into an Integer.
+ * @author Aaron Echols
+ *
+ */
+final class IntSet {
+
+	// zero marks an empty slot, so zero itself is tracked with a separate flag
+	private int[] slots = new int[8];
+	private int count;
+	private boolean hasZero;
+
+	/**
+	 *
+	 * @return the number of values in the set
+	 */
+	int size() {
+		return count + (hasZero ? 1 : 0);
+	}
+	/**
+	 *
+	 * @param value the value to look for
+	 * @return true if the set contains the value
+	 */
+	boolean contains(int value) {
+		if (value == 0) return hasZero;
+
+		int mask = slots.length - 1;
+		for (int i = mix(value) & mask; slots[i] != 0; i = (i + 1) & mask) {
+			if (slots[i] == value) return true;
+		}
+		return false;
+	}
+	/**
+	 *
+	 * @param value the value to add
+	 * @return true if the value was added, false if it was already in the set
+	 */
+	boolean add(int value) {
+		if (value == 0) {
+			boolean added = !hasZero;
+			hasZero = true;
+			return added;
+		}
+
+		int mask = slots.length - 1;
+		int i = mix(value) & mask;
+		while (slots[i] != 0) {
+			if (slots[i] == value) return false;
+			i = (i + 1) & mask;
+		}
+		slots[i] = value;
+		// keep the table at most half full
+		if (++count * 2 > slots.length) {
+			rehash(slots.length * 2);
+		}
+		return true;
+	}
+	/**
+	 *
+	 * @param value the value to remove
+	 * @return true if the value was removed, false if it was not in the set
+	 */
+	boolean remove(int value) {
+		if (value == 0) {
+			boolean removed = hasZero;
+			hasZero = false;
+			return removed;
+		}
+
+		int mask = slots.length - 1;
+		int i = mix(value) & mask;
+		while (slots[i] != value) {
+			if (slots[i] == 0) return false;
+			i = (i + 1) & mask;
+		}
+		slots[i] = 0;
+		count--;
+
+		// shift the following entries of the probe sequence back into the gap
+		for (int j = (i + 1) & mask; slots[j] != 0; j = (j + 1) & mask) {
+			int home = mix(slots[j]) & mask;
+			if (((j - home) & mask) >= ((j - i) & mask)) {
+				slots[i] = slots[j];
+				slots[j] = 0;
+				i = j;
+			}
+		}
+		return true;
+	}
+	/**
+	 *
+	 * @return a new array with every value in the set, in no particular order
+	 */
+	int[] toArray() {
+		int[] result = new int[size()];
+		int n = 0;
+		if (hasZero) result[n++] = 0;
+		for (int value : slots) {
+			if (value != 0) result[n++] = value;
+		}
+		return result;
+	}
+
+	private void rehash(int capacity) {
+		int[] old = slots;
+		slots = new int[capacity];
+		count = 0;
+		for (int value : old) {
+			if (value != 0) add(value);
+		}
+	}
+
+	private static int mix(int value) {
+		int h = value * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
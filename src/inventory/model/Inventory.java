@@ -1,40 +1,250 @@
 package inventory.model;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
 import inventory.util.PriceFormatter;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 
 /**
- * The main inventory class that holds all of the parts and products
+ * The main inventory class that holds all of the parts and products.
+ * 
+ * The inventory can be read and changed from any thread, and does not depend on any
+ * user interface. Every change is made to the inventory right away and then handed to
+ * the {@link InventoryListener}s, which is how a user interface keeps its own lists of
+ * the parts and products up to date. Other threads can read the lookup and search
+ * methods or the snapshots.
  * @author Aaron Echols
  *
  */
 public class Inventory {
 
-	private ObservableList<Part> partList;
-    private ObservableList<Product> productList;
+	// the parts and products, only changed while holding the lock on this inventory
+	private final List<Part> parts;
+	private final List<Product> products = new ArrayList<>();
+	// the columnar part store, null if the parts are kept as Part objects
+	private final PartStore partStore;
+	
+	// read-only copies handed to other threads, rebuilt after a change when next asked for
+	private volatile List<Part> partSnapshot;
+	private volatile List<Product> productSnapshot;
+	
+	// told about every change, and whether a batch of changes is being made
+	private final List<InventoryListener> listeners = new CopyOnWriteArrayList<>();
+	private boolean batching;
+	// pass changes made through the setters of the parts and products in the inventory on to the listeners
+	// (the parts of a columnar store are followed by the store instead)
+	private final PartListener partWatcher = this::partChanged;
+	private final ProductListener productWatcher = new ProductListener() {
+		@Override
+		public void productChanged(Product product) {
+			synchronized (Inventory.this) {
+				reindexProduct(product);
+			}
+			for (InventoryListener listener : listeners) {
+				listener.productChanged(product);
+			}
+		}
+	};
+	// records every change so the inventory can be rebuilt, null if there is no journal;
+	// also read by reservations, which do not hold the inventory's lock
+	private volatile InventoryJournal journal;
+	// held for reading by every reservation while it writes and records the stock of its parts,
+	// and for writing while the inventory is saved, since reservations do not wait for its lock
+	private final ReadWriteLock stockLock = new ReentrantReadWriteLock();
+	
+    // lookup indexes, kept in sync with the parts and products
+    private final NameIndex partNameIndex = new NameIndex();
+    private final Map<Integer, Part> partIDIndex = new HashMap<>();
+    private final NameIndex productNameIndex = new NameIndex();
+    private final Map<Integer, Product> productIDIndex = new HashMap<>();
+    private final SubstringIndex partSearchIndex = new SubstringIndex();
+    private final SubstringIndex productSearchIndex = new SubstringIndex();
+    private final PartUsageIndex partUsageIndex = new PartUsageIndex();
+    // set when a catalog is loaded into the columnar store, until the part name
+    // and search indexes are first needed and built
+    private boolean partIndexesPending;
+    // used under the lock to compare the fields of a changed part with the indexed ones
+    private final StringBuilder indexScratch = new StringBuilder();
     
 	/**
 	 * Create a new empty inventory and intialize the part and product lists.
 	 */
 	public Inventory() {
-		partList = FXCollections.observableArrayList();
-		productList = FXCollections.observableArrayList();
+		this(false);
+	}
+	/**
+	 * Create a new empty inventory and intialize the part and product lists.
+	 * @param columnar true to keep the part values in primitive columns instead of Part objects,
+	 * which takes a fraction of the memory for a large catalog. Parts are then handed out
+	 * as views that are created when they are needed. Only in house and outsourced parts
+	 * with unique ID numbers can be added.
+	 */
+	public Inventory(boolean columnar) {
+		if (columnar) {
+			parts = null;
+			partStore = new PartStore(this::partChanged);
+		} else {
+			parts = new ArrayList<>();
+			partStore = null;
+		}
 	}
 	
 	/**
 	 * 
-	 * @return a list of all parts currently in the inventory
+	 * @return true if the part values are kept in primitive columns, and parts are handed out as views
 	 */
-    public ObservableList<Part> getPartList() {
-    	return partList;
+	public boolean isColumnar() {
+		return partStore != null;
+	}
+    /**
+     * 
+     * @return a read-only copy of all parts currently in the inventory, safe to use on any thread
+     */
+    public List<Part> getPartSnapshot() {
+    	List<Part> snapshot = partSnapshot;
+    	if (snapshot == null) {
+    		synchronized (this) {
+    			if (partSnapshot == null) {
+    				partSnapshot = partStore != null ? partStore.snapshot() : Collections.unmodifiableList(new ArrayList<>(parts));
+    			}
+    			snapshot = partSnapshot;
+    		}
+    	}
+    	return snapshot;
     }
     /**
      * 
-     * @return a list of all products currently in the inventory
+     * @return a read-only copy of all products currently in the inventory, safe to use on any thread
+     */
+    public List<Product> getProductSnapshot() {
+    	List<Product> snapshot = productSnapshot;
+    	if (snapshot == null) {
+    		synchronized (this) {
+    			if (productSnapshot == null) {
+    				productSnapshot = Collections.unmodifiableList(new ArrayList<>(products));
+    			}
+    			snapshot = productSnapshot;
+    		}
+    	}
+    	return snapshot;
+    }
+    /**
+     * Start telling a listener about every change made to the inventory.
+     * @param listener the listener to add
+     */
+    public synchronized void addListener(InventoryListener listener) {
+    	listeners.add(listener);
+    }
+    /**
+     * Stop telling a listener about changes.
+     * @param listener the listener to remove
      */
-    public ObservableList<Product> getProductList() {
-    	return productList;
+    public synchronized void removeListener(InventoryListener listener) {
+    	listeners.remove(listener);
+    }
+    /**
+     * Make a number of changes to the inventory at once. The listeners are told when the
+     * batch starts and finishes, so a user interface can show all of the changes together.
+     * Other threads see none of the changes until the batch is done.
+     * @param changes makes the changes, for example by calling addPart or updatePart
+     */
+    public synchronized void applyBatch(Consumer<Inventory> changes) {
+    	// a batch inside a batch is part of the outer one
+    	if (batching) {
+    		changes.accept(this);
+    		return;
+    	}
+    	
+    	batching = true;
+    	for (InventoryListener listener : listeners) {
+    		listener.batchStarted();
+    	}
+    	try {
+    		changes.accept(this);
+    	} finally {
+    		batching = false;
+    		for (InventoryListener listener : listeners) {
+    			listener.batchFinished();
+    		}
+    	}
+    }
+
+    /**
+     * Get the values of every part at once, without creating a view of each part in columnar mode.
+     * @return the values of the parts in list order
+     */
+    synchronized PartColumns partColumns() {
+    	return partStore != null ? partStore.columns() : PartColumns.of(parts);
+    }
+    /**
+     *
+     * @return the index of the products that use each part, which locks itself
+     */
+    PartUsageIndex partUsageIndex() {
+    	return partUsageIndex;
+    }
+    /**
+     * Load a whole catalog of parts into an empty inventory. In columnar mode no Part objects
+     * are created, the part name and search indexes are only built when first needed, and the
+     * listeners are told with {@link InventoryListener#partsLoaded(int[])}.
+     * The parts are not recorded in the journal.
+     * @param columns the values of the parts
+     * @throws IllegalStateException if the inventory already holds parts
+     * @throws IllegalArgumentException if two of the parts have the same ID number in columnar mode
+     */
+    synchronized void loadParts(PartColumns columns) throws IllegalStateException, IllegalArgumentException {
+    	if (partStore != null ? partStore.size() > 0 : !parts.isEmpty()) {
+    		throw new IllegalStateException("Parts can only be loaded into an empty inventory.");
+    	}
+    	
+    	if (partStore != null) {
+    		int[] partIDs = Arrays.copyOf(columns.partIDs, columns.count);
+    		partStore.load(columns);
+    		partIndexesPending = columns.count > 0;
+    		partSnapshot = null;
+    		for (InventoryListener listener : listeners) {
+    			listener.partsLoaded(partIDs);
+    		}
+    	} else {
+    		applyBatch(inventory -> {
+    			for (int i = 0; i < columns.count; i++) {
+    				Part part = columns.part(i);
+    				parts.add(part);
+    				watchPart(part);
+    				indexPart(part);
+    				for (InventoryListener listener : listeners) {
+    					listener.partAdded(part);
+    				}
+    			}
+    			partSnapshot = null;
+    		});
+    	}
+    }
+    /**
+     * 
+     * @return held for reading while a reservation writes the stock of its parts, so holding it
+     * for writing together with the inventory's lock keeps the whole inventory from changing
+     */
+    ReadWriteLock stockLock() {
+    	return stockLock;
+    }
+    /**
+     * Start recording every change to a journal.
+     * @param journal the journal, null to stop recording
+     */
+    synchronized void setJournal(InventoryJournal journal) {
+    	this.journal = journal;
     }
 
     // ------------------------ PART METHODS ------------------------ 
@@ -43,25 +253,55 @@ public class Inventory {
      * Add a part to the inventory.
      * @param partToAdd the part to be added
      */
-	public void addPart(Part partToAdd) {
+	public synchronized void addPart(Part partToAdd) {
 		// Make sure the part to add is not null
-		if(partToAdd != null) {
-			partList.add(partToAdd);
+		if(partToAdd == null) return;
+		
+		if (partStore != null) {
+			partStore.add(partToAdd);
+		} else {
+			parts.add(partToAdd);
+			watchPart(partToAdd);
+		}
+		// a part that was removed before can be reserved again
+		partToAdd.reviveStock();
+		partSnapshot = null;
+		indexPart(partToAdd);
+		if (journal != null) journal.partAdded(partToAdd);
+		for (InventoryListener listener : listeners) {
+			listener.partAdded(partToAdd);
 		}
 	}
+	/**
+	 * Add a number of parts to the inventory as a single batch.
+	 * @param partsToAdd the parts to be added
+	 */
+	public void addParts(Collection<? extends Part> partsToAdd) {
+		applyBatch(inventory -> partsToAdd.forEach(inventory::addPart));
+	}
 	/**
 	 * Remove a part from the inventory.
 	 * @param partToRemove the part to remove
 	 * @return true if the part was removed successfully, false if not
 	 */
-	public boolean removePart(Part partToRemove) {
-		boolean result = false;
+	public synchronized boolean removePart(Part partToRemove) {
+		if(partToRemove == null) return false;
 
-		if(partToRemove != null) {
-			result = partList.remove(partToRemove);
+		if (partStore != null) {
+			if (partStore.remove(partToRemove) < 0) return false;
+		} else {
+			if (!parts.remove(partToRemove)) return false;
+			partToRemove.removeListener(partWatcher);
 		}
-
-		return result;
+		partToRemove.retireStock();
+		partSnapshot = null;
+		unindexPart(partToRemove);
+		if (journal != null) journal.partRemoved(partToRemove);
+		for (InventoryListener listener : listeners) {
+			listener.partRemoved(partToRemove);
+		}
+		
+		return true;
 	}
 	/**
 	 * Find a part in the inventory by name.
@@ -69,108 +309,291 @@ public class Inventory {
 	 * @return the first part in the inventory that matches the specified name,
 	 * null if no matching part was found
 	 */
-	public Part lookupPart(String name) {
-		Part partFound = null;
+	public synchronized Part lookupPart(String name) {
+		indexLoadedParts();
+		int partID = partNameIndex.first(name);
+		return partID == NameIndex.NONE ? null : partByID(partID);
+	}
+	/**
+	 * Find a part in the inventory by ID number.
+	 * In columnar mode this does not wait for changes being made on other threads.
+	 * @param partID the ID number of the part to find
+	 * @return the part with the specified ID number, null if no matching part was found
+	 */
+	public Part lookupPart(int partID) {
+		// the columnar store has its own lock
+		if (partStore != null) {
+			return partStore.lookup(partID);
+		}
+		synchronized (this) {
+			return partIDIndex.get(partID);
+		}
+	}
+	/**
+	 * Update the part with new information. The new part's stock replaces the old part's
+	 * even if a reservation changed it in the meantime; see {@link #updatePart(Part, Part, long)}.
+	 * @param oldPart the part being updated
+	 * @param newPart a part with updated values
+	 */
+	public synchronized void updatePart(Part oldPart, Part newPart) {
+		newPart.copyPartID(oldPart);
 		
-		// loop through all parts and search for a complete match of the name (case insensitive)
-		for(Part part : partList) {
-			if(name.toLowerCase().equals(part.getName().toLowerCase())) {
-				partFound = part;
-				break;
+		// the new part takes the place of the old one in the list
+		if (partStore != null) {
+			if (partStore.replace(oldPart, newPart) < 0) {
+				addPart(newPart);
+				return;
+			}
+		} else {
+			int index = parts.indexOf(oldPart);
+			if (index < 0) {
+				addPart(newPart);
+				return;
 			}
+			parts.set(index, newPart);
+			oldPart.removeListener(partWatcher);
+			watchPart(newPart);
+		}
+		oldPart.retireStock();
+		// the new part may be the old part itself, put back in its own place
+		newPart.reviveStock();
+		partSnapshot = null;
+		unindexPart(oldPart);
+		indexPart(newPart);
+		if (journal != null) journal.partUpdated(oldPart, newPart);
+		for (InventoryListener listener : listeners) {
+			listener.partReplaced(oldPart, newPart);
 		}
-		
-		return partFound;
 	}
 	/**
-	 * Update the part with new information.
+	 * Update the part with new information, unless its stock changed after the values of the
+	 * new part were read from it, for example because of a reservation made in the meantime.
 	 * @param oldPart the part being updated
 	 * @param newPart a part with updated values
+	 * @param stockVersion the {@link Part#getStockVersion() stock version} of the old part,
+	 * read before its values were
+	 * @return true if the part was updated, false if its stock changed and nothing was updated
 	 */
-	public void updatePart(Part oldPart, Part newPart) {
-		newPart.copyPartID(oldPart);
-		removePart(oldPart);
-		addPart(newPart);
+	public synchronized boolean updatePart(Part oldPart, Part newPart, long stockVersion) {
+		// from now on a reservation finds the new part instead
+		synchronized (oldPart) {
+			if (oldPart.getStockVersion() != stockVersion) return false;
+			oldPart.retireStock();
+		}
+		updatePart(oldPart, newPart);
+		return true;
 	}
 	/**
 	 * Searches all the parts for a given string. Search is case insensitive.
 	 * Searches the name, price, company name, and machine ID for possible matches.
 	 * @param str the string to search for
-	 * @return an observable list of parts
-	 */
-	public ObservableList<Part> searchForPartByString(String str) {
-		ObservableList<Part> partsFound = FXCollections.observableArrayList();
-		
-		String name = null;
-		String companyName = null;
-		String machineID = null;
-		String price = null;
-		
-		// loop through all the parts
-		for(Part part : partList) {
-			// get part properties to search on
-			name = part.getName();
-			machineID = part instanceof Inhouse ? String.valueOf(((Inhouse)part).getMachineID()) : "";
-			companyName = part instanceof Outsourced ? ((Outsourced)part).getCompanyName() : "";
-			price = PriceFormatter.format(part.getPrice());
-			
-			// if there is a partial match in any of the search properties,
-			// add the part to the list
-			if(name.toLowerCase().contains(str.toLowerCase()) ||
-				machineID.toLowerCase().contains(str.toLowerCase()) ||
-				companyName.toLowerCase().contains(str.toLowerCase()) ||
-				price.toLowerCase().contains(str.toLowerCase())) {
-				partsFound.add(part);
-			}
+	 * @return a list of parts in ID number order. This is not the order of the part list:
+	 * the two differ for parts whose ID numbers were kept from saved or imported data,
+	 * or that were removed and added again
+	 */
+	public synchronized List<Part> searchForPartByString(String str) {
+		List<Part> partsFound = new ArrayList<>();
+		indexLoadedParts();
+		
+		// the search index holds the same properties as the parts,
+		// so only the parts with a partial match are looked at
+		for(int partID : partSearchIndex.search(str)) {
+			partsFound.add(partByID(partID));
 		}
 		
 		return partsFound;
 	}
-	
+
+	// ------------------------ STOCK METHODS ------------------------
+
+	// how many times a reservation reads the parts again after their stock changed before giving up
+	private static final int MAX_STOCK_ATTEMPTS = 10_000;
+
+	/**
+	 * Take the parts needed to build a number of units of a product out of stock, all together:
+	 * either every part of the product drops by its quantity times the units, or none does.
+	 * The stock of a part is never taken below its minimum. The new stock of the parts
+	 * is recorded in the journal.
+	 *
+	 * The inventory is not held while the reservation is worked out, only while each part is
+	 * looked up. At the end just the parts of the product are locked, in ID number order, and
+	 * if the stock of one of them has changed since it was read the reservation starts over.
+	 * Assemblies of the product are not reserved.
+	 * @param product the product to build
+	 * @param units the number of units to build
+	 * @return true if the parts were taken, false if a part has too little stock above its
+	 * minimum and nothing was taken
+	 * @throws IllegalArgumentException if the units are not above zero, or a part of the product
+	 * is not in the inventory
+	 * @throws IllegalStateException if the stock of the parts kept changing while it was read
+	 */
+	public boolean reserveParts(Product product, int units) throws IllegalArgumentException, IllegalStateException {
+		return moveStock(product, units, -1);
+	}
+	/**
+	 * Put the parts of a number of units of a product back in stock, all together,
+	 * for example when a reserved build is cancelled. The stock of a part is never put
+	 * above its maximum. The new stock of the parts is recorded in the journal.
+	 * @param product the product whose parts to put back
+	 * @param units the number of units
+	 * @throws IllegalArgumentException if the units are not above zero, a part of the product
+	 * is not in the inventory, or the stock of a part would go above its maximum
+	 * @throws IllegalStateException if the stock of the parts kept changing while it was read
+	 */
+	public void releaseParts(Product product, int units) throws IllegalArgumentException, IllegalStateException {
+		if (!moveStock(product, units, 1)) {
+			throw new IllegalArgumentException("Amount of stock needs to be less than or equal to the maximum.");
+		}
+	}
+	private boolean moveStock(Product product, int units, int direction) throws IllegalArgumentException, IllegalStateException {
+		if (units <= 0) {
+			throw new IllegalArgumentException("Units must be greater than zero.");
+		}
+
+		// the parts are locked in ID number order, so two reservations never wait on each other
+		List<Part> lines = product.getPartLines();
+		int count = lines.size();
+		int[] partIDs = new int[count];
+		for (int i = 0; i < count; i++) {
+			partIDs[i] = lines.get(i).getPartID();
+		}
+		Arrays.sort(partIDs);
+		long[] changes = new long[count];
+		for (int i = 0; i < count; i++) {
+			changes[i] = direction * (long)product.getPartQuantity(partIDs[i]) * units;
+		}
+
+		Part[] found = new Part[count];
+		long[] versions = new long[count];
+		int[] stocks = new int[count];
+		for (int attempt = 0; attempt < MAX_STOCK_ATTEMPTS; attempt++) {
+			// let the change that got in the way finish
+			if (attempt > 0) Thread.yield();
+			boolean retired = false;
+			boolean enough = true;
+			for (int i = 0; i < count; i++) {
+				Part part = lookupPart(partIDs[i]);
+				if (part == null) {
+					throw new IllegalArgumentException("Part " + partIDs[i] + " is not in the inventory.");
+				}
+				found[i] = part;
+				// the version is read before the stock, so an unchanged version means the stock was current
+				versions[i] = part.getStockVersion();
+				long stock = part.getInstock() + changes[i];
+				retired |= versions[i] == Part.RETIRED;
+				// the same limits as setting the stock of the part
+				if (direction < 0 ? stock < part.getMin() : stock > part.getMax()) {
+					// too little or too much stock, unless the part changed while it was read
+					if (part.getStockVersion() == versions[i] && !retired) return false;
+					enough = false;
+				}
+				stocks[i] = (int)stock;
+			}
+			if (retired || !enough) continue;
+
+			boolean committed;
+			stockLock.readLock().lock();
+			try {
+				committed = commitStock(found, versions, stocks, journal, 0);
+			} finally {
+				stockLock.readLock().unlock();
+			}
+			if (committed) {
+				for (Part part : found) {
+					part.changed();
+				}
+				return true;
+			}
+		}
+		throw new IllegalStateException("The stock of the parts kept changing, so none was moved.");
+	}
+	/**
+	 * Lock the parts one after another, then write the new stock if no part changed since it was read.
+	 * The stock is recorded while the parts are still locked, so the records of two reservations
+	 * of the same part are in the order the stock changed in.
+	 */
+	private static boolean commitStock(Part[] parts, long[] versions, int[] stocks, InventoryJournal journal, int index) {
+		if (index == parts.length) {
+			for (int i = 0; i < parts.length; i++) {
+				if (parts[i].getStockVersion() != versions[i]) return false;
+			}
+			for (int i = 0; i < parts.length; i++) {
+				parts[i].writeStock(stocks[i]);
+				// a columnar store must hold the stock before the inventory can be saved
+				parts[i].writeBack();
+			}
+			if (journal != null) journal.stockMoved(parts);
+			return true;
+		}
+		synchronized (parts[index]) {
+			return commitStock(parts, versions, stocks, journal, index + 1);
+		}
+	}
+
 	// ------------------------ PRODUCT METHODS ------------------------ 
 	
     /**
      * Add a product to the inventory.
      * @param partToAdd the product to be added
      */
-	public void addProduct(Product productToAdd) {
-		if (productToAdd != null) {
-			productList.add(productToAdd);
+	public synchronized void addProduct(Product productToAdd) {
+		if (productToAdd == null) return;
+		
+		products.add(productToAdd);
+		productToAdd.addListener(productWatcher);
+		productSnapshot = null;
+		indexProduct(productToAdd);
+		if (journal != null) journal.productAdded(productToAdd);
+		for (InventoryListener listener : listeners) {
+			listener.productAdded(productToAdd);
 		}
 	}
+	/**
+	 * Add a number of products to the inventory as a single batch.
+	 * @param productsToAdd the products to be added
+	 */
+	public void addProducts(Collection<? extends Product> productsToAdd) {
+		applyBatch(inventory -> productsToAdd.forEach(inventory::addProduct));
+	}
 	/**
 	 * Remove a product from the inventory. The method will not allow a product
-	 * that still contains parts to be deleted.
+	 * that still contains parts or assemblies to be deleted.
 	 * @param productToRemove the product to remove
 	 * @return true if the product was removed successfully, false if not
-	 * @throws Exception if there are still parts contained in the product
+	 * @throws Exception if there are still parts or assemblies contained in the product
 	 */
-	public boolean removeProduct(Product productToRemove) throws Exception {
-		boolean result = false;
+	public synchronized boolean removeProduct(Product productToRemove) throws Exception {
 		if (productToRemove ==  null) return false;
 		
 		// if the part list is not empty
-		if(!productToRemove.getParts().isEmpty()) {
+		if(!productToRemove.getParts().isEmpty() || !productToRemove.getAssemblies().isEmpty()) {
 			throw new Exception("Product still contains one or more parts.");
 		}
 		
-		result = this.productList.remove(productToRemove);
-		
-		return result;
+		return removeNotEmptyProduct(productToRemove);
 	}
 	/**
 	 * Remove a product from the inventory even if it still contains parts.
 	 * @param productToRemove the product to remove
 	 * @return true if the product was removed successfully, false if not
+	 * @throws IllegalArgumentException if another product in the inventory contains the product as an assembly
 	 */
-	public boolean removeNotEmptyProduct(Product productToRemove) {
-		boolean result = false;
-		
-		if (productToRemove ==  null) return result;
+	public synchronized boolean removeNotEmptyProduct(Product productToRemove) throws IllegalArgumentException {
+		if (productToRemove ==  null) return false;
 		
-		result = this.productList.remove(productToRemove);
+		if (!productsUsingAssembly(productToRemove).isEmpty()) {
+			throw new IllegalArgumentException("Product is an assembly of another product.");
+		}
+		if (!products.remove(productToRemove)) return false;
+		productToRemove.removeListener(productWatcher);
+		productSnapshot = null;
+		unindexProduct(productToRemove);
+		if (journal != null) journal.productRemoved(productToRemove);
+		for (InventoryListener listener : listeners) {
+			listener.productRemoved(productToRemove);
+		}
 		
-		return result;
+		return true;
 	}
 	/**
 	 * Find a product in the inventory by name.
@@ -178,66 +601,265 @@ public class Inventory {
 	 * @return the first product in the inventory that matches the specified name,
 	 * null if no matching product was found
 	 */
-	public Product lookupProduct(String name) {
-		Product productFound = null;
-		
-		// loop through all products and search for a complete match of the name
-		for(Product product : productList) {
-			if(name.toLowerCase().equals(product.getName().toLowerCase())) {
-				productFound = product;
-				break;
-			}
-		}
-		
-		return productFound;
+	public synchronized Product lookupProduct(String name) {
+		int productID = productNameIndex.first(name);
+		return productID == NameIndex.NONE ? null : productIDIndex.get(productID);
 	}
 	/**
-	 * Update the product with new information.
+	 * Find a product in the inventory by ID number.
+	 * @param productID the ID number of the product to find
+	 * @return the product with the specified ID number, null if no matching product was found
+	 */
+	public synchronized Product lookupProduct(int productID) {
+		return productIDIndex.get(productID);
+	}
+	/**
+	 * Update the product with new information. Products that contain the old product
+	 * as an assembly contain the new product from then on.
 	 * @param oldProduct the product being updated
 	 * @param newProduct a product with updated values
+	 * @throws IllegalArgumentException if the new product contains a product that
+	 * contains the old product, which would make a product contain itself
 	 */
-	public void updateProduct(Product oldProduct, Product newProduct) {
+	public synchronized void updateProduct(Product oldProduct, Product newProduct) throws IllegalArgumentException {
+		List<Product> parents = productsUsingAssembly(oldProduct);
+		for (Product parent : parents) {
+			if (newProduct.contains(parent)) {
+				throw new IllegalArgumentException("A product cannot contain itself.");
+			}
+		}
 		newProduct.copyProductID(oldProduct);
-		removeNotEmptyProduct(oldProduct);
-		addProduct(newProduct);
+		
+		// the new product takes the place of the old one in the list
+		int index = products.indexOf(oldProduct);
+		if (index < 0) {
+			addProduct(newProduct);
+			return;
+		}
+		products.set(index, newProduct);
+		for (Product parent : parents) {
+			parent.replaceAssembly(oldProduct, newProduct);
+		}
+		oldProduct.removeListener(productWatcher);
+		newProduct.addListener(productWatcher);
+		productSnapshot = null;
+		unindexProduct(oldProduct);
+		indexProduct(newProduct);
+		if (journal != null) journal.productUpdated(oldProduct, newProduct);
+		for (InventoryListener listener : listeners) {
+			listener.productReplaced(oldProduct, newProduct);
+		}
 	}
 	/**
 	 * Searches all the products for a given string. Search is case insensitive.
 	 * Searches the name, price, and associated parts' names for possible matches.
 	 * @param str the string to search for
-	 * @return an observable list of products
-	 */
-	public ObservableList<Product> searchForProductByString(String str) {
-		ObservableList<Product> productsFound = FXCollections.observableArrayList();
-		
-		String name = null;
-		String price = null;
-		
-		// loop through all the products
-		PRODUCTS:
-		for(Product product : productList) {
-			// get product properties to search on
-			name = product.getName();
-			price = PriceFormatter.format(product.getPrice());
-			
-			// loop through all the parts in that product
-			for(Part part : product.getParts()) {
-				// if the part name contains the search string, add the product
-				// to the list and skip to the next product
-				if(part.getName().toLowerCase().contains(str.toLowerCase())) {
-					productsFound.add(product);
-					continue PRODUCTS;
-				}
+	 * @return a list of products in ID number order. This is not the order of the product list:
+	 * the two differ for products whose ID numbers were kept from saved or imported data,
+	 * or that were removed and added again
+	 */
+	public synchronized List<Product> searchForProductByString(String str) {
+		// products with a part whose name contains the search string
+		Set<Product> productsMatched = partUsageIndex.productsUsingPartNamed(str);
+		
+		// products with a partial match in their own search properties
+		for(int productID : productSearchIndex.search(str)) {
+			productsMatched.add(productIDIndex.get(productID));
+		}
+		
+		return sortedProducts(productsMatched);
+	}
+	/**
+	 * Find all the products in the inventory that contain a part.
+	 * @param partID the ID number of the part
+	 * @return a list of products
+	 */
+	public synchronized List<Product> lookupProductsUsingPart(int partID) {
+		return sortedProducts(partUsageIndex.productsUsing(partID));
+	}
+	/**
+	 * Find all the products in the inventory that contain a product as an assembly,
+	 * at the level just above it.
+	 * @param productID the ID number of the assembly
+	 * @return a list of products
+	 */
+	public synchronized List<Product> lookupProductsUsingAssembly(int productID) {
+		List<Product> productsFound = new ArrayList<>();
+		for (Product product : products) {
+			if (product.getAssemblyQuantity(productID) > 0) {
+				productsFound.add(product);
 			}
-			
-			// if there is a partial match in any of the search properties,
-			// add the product to the list
-			if(name.toLowerCase().contains(str.toLowerCase()) ||
-				price.toLowerCase().contains(str.toLowerCase())) {
+		}
+		return productsFound;
+	}
+	
+	/**
+	 * The products in the inventory that contain this very product as an assembly.
+	 */
+	private List<Product> productsUsingAssembly(Product assembly) {
+		List<Product> productsFound = new ArrayList<>();
+		for (Product product : products) {
+			if (product.lookupAssembly(assembly.getProductID()) == assembly) {
 				productsFound.add(product);
 			}
 		}
+		return productsFound;
+	}
+	
+	// ------------------------ INDEX METHODS ------------------------ 
+	
+	/**
+	 * Tell the listeners about a change made through the setters of a part in the inventory.
+	 */
+	private void partChanged(Part part) {
+		synchronized (this) {
+			reindexPart(part);
+		}
+		for (InventoryListener listener : listeners) {
+			listener.partChanged(part);
+		}
+	}
+	private void watchPart(Part part) {
+		part.addListener(partWatcher);
+	}
+	private Part partByID(int partID) {
+		// a columnar store finds its own parts, so that the index does not keep every view alive
+		return partStore != null ? partStore.lookup(partID) : partIDIndex.get(partID);
+	}
+	private void indexPart(Part part) {
+		if (partStore == null) {
+			partIDIndex.put(part.getPartID(), part);
+		}
+		// the pending indexes are built from the store as it is when they are needed
+		if (partIndexesPending) return;
+		
+		indexPartFields(part.getPartID(),
+				part.getName(),
+				part instanceof Inhouse ? String.valueOf(((Inhouse)part).getMachineID()) : "",
+				part instanceof Outsourced ? ((Outsourced)part).getCompanyName() : "",
+				part.getPriceCents());
+	}
+	private void indexPartFields(int partID, String name, String machineID, String companyName, long priceCents) {
+		partNameIndex.add(name, partID);
+		
+		// search on the name, price, company name, and machine ID
+		partSearchIndex.add(partID, name, machineID, companyName, PriceFormatter.formatCents(priceCents));
+	}
+	/**
+	 * Build the part name and search indexes for a loaded catalog, if that has not been done yet.
+	 */
+	private void indexLoadedParts() {
+		if (!partIndexesPending) return;
+		partIndexesPending = false;
+		
+		PartColumns columns = partStore.columns();
+		for (int i = 0; i < columns.count; i++) {
+			int source = columns.sources[i];
+			indexPartFields(columns.partIDs[i],
+					columns.name(i),
+					columns.inhouse[i] ? String.valueOf(source) : "",
+					columns.inhouse[i] ? "" : columns.suppliers.get(source),
+					columns.priceCents[i]);
+		}
+	}
+	/**
+	 * Bring the indexes up to date after a part in the inventory changed through its own setters.
+	 * The indexed fields are compared first, so a change of stock only costs the comparison.
+	 */
+	private void reindexPart(Part part) {
+		if (partIndexesPending) return;
+		int partID = part.getPartID();
+		// only the part the inventory holds, not an old copy with the same ID number
+		if (partStore == null && partIDIndex.get(partID) != part) return;
+		String[] indexed = partSearchIndex.fields(partID);
+		if (indexed == null) return;
+
+		String companyName = part instanceof Outsourced ? ((Outsourced)part).getCompanyName() : "";
+		indexScratch.setLength(0);
+		if (part instanceof Inhouse) indexScratch.append(((Inhouse)part).getMachineID());
+		boolean sameMachineID = sameIgnoringCase(indexed[1], indexScratch);
+		indexScratch.setLength(0);
+		PriceFormatter.appendCents(indexScratch, part.getPriceCents());
+		if (sameIgnoringCase(indexed[0], part.getName()) && sameMachineID
+				&& sameIgnoringCase(indexed[2], companyName == null ? "" : companyName)
+				&& sameIgnoringCase(indexed[3], indexScratch)) return;
+
+		partNameIndex.rename(indexed[0], part.getName(), partID);
+		partSearchIndex.add(partID,
+				part.getName(),
+				part instanceof Inhouse ? String.valueOf(((Inhouse)part).getMachineID()) : "",
+				companyName,
+				PriceFormatter.formatCents(part.getPriceCents()));
+	}
+	private void unindexPart(Part part) {
+		if (partIndexesPending) return;
+		
+		// the part is indexed under the name it had when it was last indexed
+		String[] indexed = partSearchIndex.fields(part.getPartID());
+		String name = indexed != null ? indexed[0] : part.getName();
+		// keep the ID entry if another copy of the part is still in the list
+		if (!partNameIndex.remove(name, part.getPartID())) {
+			partIDIndex.remove(part.getPartID(), part);
+			partSearchIndex.remove(part.getPartID());
+		}
+	}
+	private void indexProduct(Product product) {
+		productNameIndex.add(product.getName(), product.getProductID());
+		productIDIndex.put(product.getProductID(), product);
 		
+		// search on the name and price
+		productSearchIndex.add(product.getProductID(),
+				product.getName(),
+				PriceFormatter.formatCents(product.getPriceCents()));
+		partUsageIndex.addProduct(product);
+	}
+	/**
+	 * Bring the indexes up to date after a product in the inventory changed through its own setters.
+	 */
+	private void reindexProduct(Product product) {
+		int productID = product.getProductID();
+		if (productIDIndex.get(productID) != product) return;
+		String[] indexed = productSearchIndex.fields(productID);
+		if (indexed == null) return;
+		indexScratch.setLength(0);
+		PriceFormatter.appendCents(indexScratch, product.getPriceCents());
+		if (sameIgnoringCase(indexed[0], product.getName()) && sameIgnoringCase(indexed[1], indexScratch)) return;
+
+		productNameIndex.rename(indexed[0], product.getName(), productID);
+		productSearchIndex.add(productID,
+				product.getName(),
+				PriceFormatter.formatCents(product.getPriceCents()));
+	}
+	private void unindexProduct(Product product) {
+		String[] indexed = productSearchIndex.fields(product.getProductID());
+		String name = indexed != null ? indexed[0] : product.getName();
+		if (!productNameIndex.remove(name, product.getProductID())) {
+			productIDIndex.remove(product.getProductID(), product);
+			productSearchIndex.remove(product.getProductID());
+			partUsageIndex.removeProduct(product);
+		}
+	}
+	/**
+	 * 
+	 * @param indexed a lower case field from a search index
+	 * @param value the current value of the field
+	 * @return true if the value would be indexed as the same field
+	 */
+	private static boolean sameIgnoringCase(String indexed, CharSequence value) {
+		if (indexed.length() != value.length()) return false;
+		for (int i = 0; i < indexed.length(); i++) {
+			if (indexed.charAt(i) != Character.toLowerCase(value.charAt(i))) return false;
+		}
+		return true;
+	}
+	/**
+	 * 
+	 * @param products the products found by a search
+	 * @return the products as a list in ID number order
+	 */
+	private static List<Product> sortedProducts(Set<Product> products) {
+		List<Product> productsFound = new ArrayList<>(products);
+		productsFound.sort(Comparator.comparingInt(Product::getProductID));
 		return productsFound;
 	}
 	
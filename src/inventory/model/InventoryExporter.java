@@ -0,0 +1,234 @@
+package inventory.model;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Exports every part and product in an inventory as CSV or as JSON Lines.
+ *
+ * The CSV uses the columns of {@link InventoryImporter#CSV_HEADER}, so an exported file
+ * can be imported again. JSON Lines holds one JSON object per part or product.
+ * A product lists its parts by ID number in both formats.
+ *
+ * The inventory is copied at one moment into compact columns, without a Part object
+ * for each part, and the lines are then written one at a time through a buffer to
+ * a file channel, so the whole document is never held in memory. The inventory
+ * can be changed while the lines are written.
+ * @author Aaron Echols
+ *
+ */
+public final class InventoryExporter {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final Inventory inventory;
+
+	/**
+	 * Create an exporter.
+	 * @param inventory the inventory to export
+	 */
+	public InventoryExporter(Inventory inventory) {
+		this.inventory = inventory;
+	}
+
+	/**
+	 * Export the inventory to a CSV file encoded in UTF-8.
+	 * @param file the file to write, replaced if it exists
+	 * @throws IOException if the file cannot be written
+	 */
+	public void exportCsv(Path file) throws IOException {
+		try (FileChannel channel = openFile(file)) {
+			exportCsv(channel);
+		}
+	}
+	/**
+	 * Export the inventory as CSV encoded in UTF-8.
+	 * @param channel the channel to write to, left open
+	 * @throws IOException if the channel cannot be written
+	 */
+	public void exportCsv(WritableByteChannel channel) throws IOException {
+		Contents contents = copyContents();
+		Writer out = writer(channel);
+		PartColumns columns = contents.columns;
+
+		out.write(InventoryImporter.CSV_HEADER);
+		out.write('\n');
+		for (int i = 0; i < columns.count; i++) {
+			out.write(columns.inhouse[i] ? "inhouse," : "outsourced,");
+			out.write(Integer.toString(columns.partIDs[i]));
+			out.write(',');
+			writeCsvValue(out, columns.name(i));
+			writeCsvNumbers(out, columns.priceCents[i], columns.instocks[i], columns.mins[i], columns.maxes[i]);
+			if (columns.inhouse[i]) {
+				out.write(Integer.toString(columns.sources[i]));
+			} else {
+				writeCsvValue(out, columns.suppliers.get(columns.sources[i]));
+			}
+			out.write(",\n");
+		}
+		for (Product product : contents.products) {
+			out.write("product,");
+			out.write(Integer.toString(product.getProductID()));
+			out.write(',');
+			writeCsvValue(out, product.getName());
+			writeCsvNumbers(out, product.getPriceCents(), product.getInstock(), product.getMin(), product.getMax());
+			out.write(',');
+			writePartIDs(out, product, ';');
+			out.write('\n');
+		}
+		out.flush();
+	}
+	/**
+	 * Export the inventory to a JSON Lines file encoded in UTF-8.
+	 * @param file the file to write, replaced if it exists
+	 * @throws IOException if the file cannot be written
+	 */
+	public void exportJsonLines(Path file) throws IOException {
+		try (FileChannel channel = openFile(file)) {
+			exportJsonLines(channel);
+		}
+	}
+	/**
+	 * Export the inventory as JSON Lines encoded in UTF-8.
+	 * @param channel the channel to write to, left open
+	 * @throws IOException if the channel cannot be written
+	 */
+	public void exportJsonLines(WritableByteChannel channel) throws IOException {
+		Contents contents = copyContents();
+		Writer out = writer(channel);
+		PartColumns columns = contents.columns;
+
+		for (int i = 0; i < columns.count; i++) {
+			out.write(columns.inhouse[i] ? "{\"kind\":\"inhouse\"" : "{\"kind\":\"outsourced\"");
+			writeJsonValues(out, columns.partIDs[i], columns.name(i), columns.priceCents[i], columns.instocks[i], columns.mins[i], columns.maxes[i]);
+			if (columns.inhouse[i]) {
+				out.write(",\"machineID\":");
+				out.write(Integer.toString(columns.sources[i]));
+			} else {
+				out.write(",\"companyName\":");
+				writeJsonString(out, columns.suppliers.get(columns.sources[i]));
+			}
+			out.write("}\n");
+		}
+		for (Product product : contents.products) {
+			out.write("{\"kind\":\"product\"");
+			writeJsonValues(out, product.getProductID(), product.getName(), product.getPriceCents(), product.getInstock(), product.getMin(), product.getMax());
+			out.write(",\"parts\":[");
+			writePartIDs(out, product, ',');
+			out.write("]}\n");
+		}
+		out.flush();
+	}
+
+	/**
+	 * Copy the parts and products as they are at one moment.
+	 */
+	private Contents copyContents() {
+		synchronized (inventory) {
+			return new Contents(inventory.partColumns(), inventory.getProductSnapshot());
+		}
+	}
+	private static FileChannel openFile(Path file) throws IOException {
+		return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+	}
+	private static Writer writer(WritableByteChannel channel) {
+		return new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE), BUFFER_SIZE);
+	}
+
+	private static void writeCsvNumbers(Writer out, long priceCents, int instock, int min, int max) throws IOException {
+		out.write(',');
+		out.write(Money.toString(priceCents));
+		out.write(',');
+		out.write(Integer.toString(instock));
+		out.write(',');
+		out.write(Integer.toString(min));
+		out.write(',');
+		out.write(Integer.toString(max));
+		out.write(',');
+	}
+	/**
+	 * Write the ID number of a product's part once for each unit the product contains.
+	 */
+	private static void writePartIDs(Writer out, Product product, char separator) throws IOException {
+		int written = 0;
+		for (Part part : product.getPartLines()) {
+			String partID = Integer.toString(part.getPartID());
+			for (int n = product.getPartQuantity(part.getPartID()); n > 0; n--) {
+				if (written++ > 0) out.write(separator);
+				out.write(partID);
+			}
+		}
+	}
+	/**
+	 * Write a value, quoting it if it holds a comma, a quote, a line break, or spaces at either end.
+	 */
+	private static void writeCsvValue(Writer out, String value) throws IOException {
+		boolean quote = !value.isEmpty() && (value.charAt(0) == ' ' || value.charAt(value.length() - 1) == ' ');
+		for (int i = 0; i < value.length() && !quote; i++) {
+			char c = value.charAt(i);
+			quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+		}
+		if (!quote) {
+			out.write(value);
+			return;
+		}
+
+		out.write('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"') out.write('"');
+			out.write(c);
+		}
+		out.write('"');
+	}
+	private static void writeJsonValues(Writer out, int id, String name, long priceCents, int instock, int min, int max) throws IOException {
+		out.write(",\"id\":");
+		out.write(Integer.toString(id));
+		out.write(",\"name\":");
+		writeJsonString(out, name);
+		out.write(",\"price\":");
+		out.write(Money.toString(priceCents));
+		out.write(",\"instock\":");
+		out.write(Integer.toString(instock));
+		out.write(",\"min\":");
+		out.write(Integer.toString(min));
+		out.write(",\"max\":");
+		out.write(Integer.toString(max));
+	}
+	private static void writeJsonString(Writer out, String value) throws IOException {
+		out.write('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				out.write('\\');
+				out.write(c);
+			} else if (c < 0x20) {
+				out.write(String.format("\\u%04x", (int)c));
+			} else {
+				out.write(c);
+			}
+		}
+		out.write('"');
+	}
+
+	/**
+	 * The parts and products copied from the inventory.
+	 */
+	private static final class Contents {
+		private final PartColumns columns;
+		private final List<Product> products;
+
+		Contents(PartColumns columns, List<Product> products) {
+			this.columns = columns;
+			this.products = products;
+		}
+	}
+}
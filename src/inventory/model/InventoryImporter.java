@@ -0,0 +1,392 @@
+package inventory.model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Imports parts and products from a CSV file into an inventory.
+ *
+ * Each line holds one part or product, in the columns named by {@link #CSV_HEADER}:
+ * <ul>
+ * <li>kind: inhouse, outsourced, or product</li>
+ * <li>id: the ID number to keep, or empty to give the row a new ID number. A line whose
+ * ID number is already used by a part or product in the inventory, or on an earlier
+ * line, is skipped. That includes an ID number given to an earlier line without one,
+ * since new ID numbers are only kept clear of the ID numbers in the same chunk of lines;
+ * give every line an ID number, or none, to import all of them.</li>
+ * <li>name, price, instock, min, max: the values of the part or product</li>
+ * <li>source: the machine ID of an in house part, or the company name of an outsourced part</li>
+ * <li>parts: the parts contained in a product, separated by semicolons. Each part is
+ * given by ID number or by name, and must be in the inventory or on an earlier line.</li>
+ * </ul>
+ * Values containing commas or quotes are quoted, with quotes inside them doubled.
+ * The header line itself is optional.
+ *
+ * The file is read in chunks of lines. The chunks are parsed in parallel on a fork-join
+ * pool, while the lines that are already parsed are added to the inventory in file order,
+ * one batch per chunk. New ID numbers are given out as the lines are added, so they
+ * follow the order of the file. Only a few chunks are held at any time, so a file of any size
+ * is imported in the same amount of memory. Lines that cannot be imported are skipped
+ * and reported in the {@link Result}.
+ * @author Aaron Echols
+ *
+ */
+public final class InventoryImporter {
+
+	/**
+	 * The header line of an inventory CSV file, naming its columns.
+	 */
+	public static final String CSV_HEADER = "kind,id,name,price,instock,min,max,source,parts";
+
+	private static final int CHUNK_LINES = 4096;
+	// only the first errors are kept as messages, the rest are only counted
+	private static final int MAX_ERRORS = 100;
+
+	private final Inventory inventory;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Create an importer that parses on the common fork-join pool.
+	 * @param inventory the inventory to import into
+	 */
+	public InventoryImporter(Inventory inventory) {
+		this(inventory, ForkJoinPool.commonPool());
+	}
+	/**
+	 * Create an importer.
+	 * @param inventory the inventory to import into
+	 * @param pool the pool to parse the chunks of lines on
+	 */
+	public InventoryImporter(Inventory inventory, ForkJoinPool pool) {
+		this.inventory = inventory;
+		this.pool = pool;
+	}
+
+	/**
+	 * Import a CSV file encoded in UTF-8.
+	 * @param file the file to import
+	 * @return the number of parts and products imported and the lines that were skipped
+	 * @throws IOException if the file cannot be read
+	 */
+	public Result importCsv(Path file) throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			return importCsv(reader);
+		}
+	}
+	/**
+	 * Import CSV text.
+	 * @param in the text to import
+	 * @return the number of parts and products imported and the lines that were skipped
+	 * @throws IOException if the text cannot be read
+	 */
+	public Result importCsv(Reader in) throws IOException {
+		BufferedReader reader = in instanceof BufferedReader ? (BufferedReader)in : new BufferedReader(in, 1 << 16);
+		Result result = new Result();
+		Deque<ForkJoinTask<List<Row>>> parsing = new ArrayDeque<>();
+		int maxParsing = pool.getParallelism() * 2;
+
+		List<String> lines = new ArrayList<>(CHUNK_LINES);
+		int firstLine = 1;
+		int lineNumber = 0;
+		String line;
+		while ((line = reader.readLine()) != null) {
+			lineNumber++;
+			if (lineNumber == 1 && line.trim().equalsIgnoreCase(CSV_HEADER)) {
+				firstLine = 2;
+				continue;
+			}
+			lines.add(line);
+
+			if (lines.size() == CHUNK_LINES) {
+				parsing.add(parseLater(lines, firstLine));
+				lines = new ArrayList<>(CHUNK_LINES);
+				firstLine = lineNumber + 1;
+			}
+			// wait for the oldest chunk before reading too far ahead
+			if (parsing.size() >= maxParsing) {
+				commit(parsing.removeFirst().join(), result);
+			}
+		}
+		if (!lines.isEmpty()) {
+			parsing.add(parseLater(lines, firstLine));
+		}
+		while (!parsing.isEmpty()) {
+			commit(parsing.removeFirst().join(), result);
+		}
+		return result;
+	}
+
+	private ForkJoinTask<List<Row>> parseLater(List<String> lines, int firstLine) {
+		return pool.submit(() -> {
+			List<Row> rows = new ArrayList<>(lines.size());
+			for (int i = 0; i < lines.size(); i++) {
+				if (!lines.get(i).trim().isEmpty()) {
+					rows.add(parse(lines.get(i), firstLine + i));
+				}
+			}
+			return rows;
+		});
+	}
+	/**
+	 * Add the rows of a chunk to the inventory as a single batch.
+	 */
+	private void commit(List<Row> rows, Result result) {
+		// new ID numbers must not clash with the ones kept from this chunk; a later chunk that
+		// keeps an ID number already given out here finds it in use and skips that line
+		int maxPartID = 0;
+		int maxProductID = 0;
+		for (Row row : rows) {
+			if (row.part != null) {
+				maxPartID = Math.max(maxPartID, row.partID);
+			} else if (row.error == null) {
+				maxProductID = Math.max(maxProductID, row.productID);
+			}
+		}
+		Part.seedPartID(maxPartID);
+		Product.seedProductID(maxProductID);
+
+		inventory.applyBatch(inv -> {
+			for (Row row : rows) {
+				if (row.error != null) {
+					result.skip(row.line, row.error);
+					continue;
+				}
+				try {
+					if (row.part != null) {
+						if (row.partID == 0) {
+							row.part.setPartID();
+						} else if (inv.lookupPart(row.partID) != null) {
+							throw new IllegalArgumentException("Part ID number " + row.partID + " is already in use.");
+						} else {
+							row.part.assignPartID(row.partID);
+						}
+						inv.addPart(row.part);
+						result.parts++;
+					} else {
+						if (row.productID != 0 && inv.lookupProduct(row.productID) != null) {
+							throw new IllegalArgumentException("Product ID number " + row.productID + " is already in use.");
+						}
+						inv.addProduct(row.toProduct(inv));
+						result.products++;
+					}
+				} catch (IllegalArgumentException e) {
+					result.skip(row.line, e.getMessage());
+				}
+			}
+		});
+	}
+
+	/**
+	 * Parse a line into a part, or into the values of a product whose parts
+	 * are looked up when it is added.
+	 */
+	private static Row parse(String line, int lineNumber) {
+		Row row = new Row(lineNumber);
+		try {
+			List<String> fields = fields(line);
+			if (fields.size() < 8) {
+				throw new IllegalArgumentException("Expected at least 8 columns but found " + fields.size() + ".");
+			}
+			String kind = fields.get(0).trim();
+			String id = fields.get(1).trim();
+			String name = fields.get(2);
+			// read in exact cents; the dollar amount converts back to the same cents
+			long cents = toCents(fields.get(3));
+			double price = Money.toDollars(cents);
+			int instock = toInt(fields.get(4));
+			int min = toInt(fields.get(5));
+			int max = toInt(fields.get(6));
+			String source = fields.get(7);
+
+			// parts get their ID number when they are added, in file order
+			if (kind.equalsIgnoreCase("inhouse")) {
+				Inhouse part = new Inhouse(0, null, 0, 0, 0, 0, 0);
+				setValues(part, name, cents, instock, min, max);
+				part.setMachineID(toInt(source));
+				row.part = part;
+			} else if (kind.equalsIgnoreCase("outsourced")) {
+				Outsourced part = new Outsourced(0, null, 0, 0, 0, 0, null);
+				setValues(part, name, cents, instock, min, max);
+				part.setCompanyName(source);
+				row.part = part;
+			} else if (kind.equalsIgnoreCase("product")) {
+				row.productID = id.isEmpty() ? 0 : toInt(id);
+				row.name = name;
+				row.price = price;
+				row.instock = instock;
+				row.min = min;
+				row.max = max;
+				row.partRefs = fields.size() > 8 ? fields.get(8) : "";
+				return row;
+			} else {
+				throw new IllegalArgumentException("Unknown kind \"" + kind + "\".");
+			}
+
+			row.partID = id.isEmpty() ? 0 : toInt(id);
+		} catch (IllegalArgumentException e) {
+			row.part = null;
+			row.error = e.getMessage();
+		}
+		return row;
+	}
+	/**
+	 * Set and check the values of a new part, as its public constructors do, without giving it an ID number.
+	 */
+	private static void setValues(Part part, String name, long cents, int instock, int min, int max)
+			throws IllegalArgumentException {
+		part.setName(name);
+		part.setPriceCents(cents);
+		part.setMax(max);
+		part.setMin(min);
+		part.setInstock(instock);
+	}
+	/**
+	 * Split a CSV line into its values.
+	 */
+	private static List<String> fields(String line) {
+		List<String> fields = new ArrayList<>(9);
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c != '"') {
+					field.append(c);
+				} else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					// a doubled quote inside a quoted value
+					field.append('"');
+					i++;
+				} else {
+					quoted = false;
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		fields.add(field.toString());
+		return fields;
+	}
+	private static int toInt(String value) throws IllegalArgumentException {
+		try {
+			return value.trim().isEmpty() ? 0 : Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("\"" + value + "\" is not a whole number.");
+		}
+	}
+	private static long toCents(String value) throws IllegalArgumentException {
+		return value.trim().isEmpty() ? 0 : Money.parse(value.trim());
+	}
+
+	/**
+	 * A parsed line: a part, the values of a product, or the reason the line is skipped.
+	 */
+	private static final class Row {
+		private final int line;
+		private Part part;
+		// the ID number kept from the file, zero for a new one
+		private int partID;
+		private String error;
+
+		private int productID;
+		private String name;
+		private double price;
+		private int instock;
+		private int min;
+		private int max;
+		private String partRefs;
+
+		Row(int line) {
+			this.line = line;
+		}
+
+		/**
+		 * Create the product, looking up its parts in the inventory.
+		 */
+		Product toProduct(Inventory inventory) throws IllegalArgumentException {
+			List<Part> parts = new ArrayList<>();
+			for (String ref : partRefs.split(";")) {
+				ref = ref.trim();
+				if (ref.isEmpty()) continue;
+
+				Part part = null;
+				if (ref.chars().allMatch(Character::isDigit)) {
+					part = inventory.lookupPart(Integer.parseInt(ref));
+				}
+				if (part == null) {
+					part = inventory.lookupPart(ref);
+				}
+				if (part == null) {
+					throw new IllegalArgumentException("No part has the name or ID number \"" + ref + "\".");
+				}
+				parts.add(part);
+			}
+
+			Product product = new Product(name, price, instock, min, max, parts);
+			if (productID != 0) {
+				product.assignProductID(productID);
+			}
+			return product;
+		}
+	}
+
+	/**
+	 * The outcome of an import.
+	 */
+	public static final class Result {
+		private long parts;
+		private long products;
+		private long skipped;
+		private final List<String> errors = new ArrayList<>();
+
+		private void skip(int line, String reason) {
+			if (skipped++ < MAX_ERRORS) {
+				errors.add("Line " + line + ": " + reason);
+			}
+		}
+
+		/**
+		 *
+		 * @return the number of parts added to the inventory
+		 */
+		public long getPartsImported() {
+			return parts;
+		}
+		/**
+		 *
+		 * @return the number of products added to the inventory
+		 */
+		public long getProductsImported() {
+			return products;
+		}
+		/**
+		 *
+		 * @return the number of lines that were skipped
+		 */
+		public long getLinesSkipped() {
+			return skipped;
+		}
+		/**
+		 *
+		 * @return why the first skipped lines were skipped, at most one hundred of them
+		 */
+		public List<String> getErrors() {
+			return Collections.unmodifiableList(errors);
+		}
+	}
+}
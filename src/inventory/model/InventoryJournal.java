@@ -0,0 +1,697 @@
+package inventory.model;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of every change made to an inventory, so the inventory
+ * can be rebuilt after the application is restarted.
+ *
+ * Each change is written as a small binary record with a checksum. Records are
+ * collected in memory and written by a background thread, which waits a few
+ * milliseconds for more records before writing them all with a single flush to
+ * the disk (a group commit). A crash can lose at most the changes made in that
+ * short time; call {@link #sync()} to wait until every change so far is on the disk.
+ *
+ * Parts and products are recorded with all of their values when they are added
+ * or updated. Parts reserved or released through the inventory are recorded with
+ * the new stock of each part. Changes made directly through the setters of a part
+ * or product that is already in the inventory are not recorded.
+ *
+ * A journal can be paired with an {@link InventorySnapshot}. A {@link #checkpoint()}
+ * saves the inventory to the snapshot and starts a new, empty generation of the
+ * journal, so the next start only loads the snapshot and replays the changes made since.
+ * @author Aaron Echols
+ *
+ */
+public final class InventoryJournal implements Closeable {
+
+	// "INVJ" followed by the format version and the generation of the journal
+	private static final int MAGIC = 0x494E564A;
+	private static final int VERSION = 5;
+	// the first version held prices as doubles of dollars instead of longs of cents,
+	// the first two held no assemblies in products, the first three no stock moves,
+	// and the first four held the parts of a product one unit at a time
+	private static final int DOLLARS_VERSION = 1;
+	private static final int PARTS_ONLY_VERSION = 2;
+	private static final int NO_STOCK_MOVES_VERSION = 3;
+	private static final int PART_UNITS_VERSION = 4;
+	private static final int HEADER_SIZE = 16;
+
+	// how long the commit thread waits for more records before flushing to the disk
+	private static final long COMMIT_DELAY = 5;
+
+	// record types
+	private static final byte ADD_PART = 1;
+	private static final byte REMOVE_PART = 2;
+	private static final byte UPDATE_PART = 3;
+	private static final byte ADD_PRODUCT = 4;
+	private static final byte REMOVE_PRODUCT = 5;
+	private static final byte UPDATE_PRODUCT = 6;
+	private static final byte MOVE_STOCK = 7;
+
+	// part kinds
+	private static final byte INHOUSE = 0;
+	private static final byte OUTSOURCED = 1;
+
+	private final FileChannel channel;
+	private final boolean created;
+	private final Inventory inventory;
+	// the snapshot saved by a checkpoint, null if there is none
+	private final Path snapshotFile;
+	// goes up by one with every checkpoint, a snapshot includes the records of its own generation
+	private long generation;
+
+	// the body of the record being written, and the records waiting to be committed
+	private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+	private final DataOutputStream recordOut = new DataOutputStream(record);
+	private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+	private final CRC32 crc = new CRC32();
+	// held by the commit thread while it writes and by a checkpoint while it empties the file
+	private final Object channelLock = new Object();
+
+	// the number of records appended, and how many of them are on the disk
+	private long appended;
+	private long committed;
+	private boolean closed;
+	private IOException failure;
+	private final Thread committer;
+
+	private InventoryJournal(FileChannel channel, boolean created, Inventory inventory, Path snapshotFile, long generation) {
+		this.channel = channel;
+		this.created = created;
+		this.inventory = inventory;
+		this.snapshotFile = snapshotFile;
+		this.generation = generation;
+
+		committer = new Thread(this::commitRecords, "inventory-journal");
+		committer.setDaemon(true);
+		committer.start();
+	}
+
+	/**
+	 * Open a journal and replay the changes it holds into an inventory. A new journal
+	 * is created if the file does not exist. From then on every change made to the
+	 * inventory is added to the journal.
+	 * @param file the journal file
+	 * @param inventory an empty inventory to rebuild
+	 * @return the open journal
+	 * @throws IOException if the file cannot be read or written, or is not an inventory journal
+	 */
+	public static InventoryJournal open(Path file, Inventory inventory) throws IOException {
+		return open(file, null, inventory);
+	}
+	/**
+	 * Open a journal paired with a snapshot. The snapshot is loaded if it exists, then the
+	 * changes made since it was saved are replayed from the journal. A new journal
+	 * is created if the file does not exist. From then on every change made to the
+	 * inventory is added to the journal.
+	 * @param file the journal file
+	 * @param snapshotFile the snapshot file saved by {@link #checkpoint()}
+	 * @param inventory an empty inventory to rebuild, columnar for the fastest loading
+	 * @return the open journal
+	 * @throws IOException if a file cannot be read or written, or is not an inventory journal or snapshot
+	 */
+	public static InventoryJournal open(Path file, Path snapshotFile, Inventory inventory) throws IOException {
+		long snapshotGeneration = -1;
+		if (snapshotFile != null && Files.exists(snapshotFile)) {
+			snapshotGeneration = InventorySnapshot.load(snapshotFile, inventory);
+		}
+
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			boolean created = channel.size() < HEADER_SIZE;
+			int version = created ? VERSION : readVersion(channel);
+			long generation = created ? -1 : readGeneration(channel);
+			boolean migrate = false;
+			if (generation > snapshotGeneration) {
+				long end = replay(channel, inventory, version);
+				migrate = version != VERSION;
+				// drop a record that was only partly written when the application stopped
+				if (end < channel.size()) {
+					channel.truncate(end);
+				}
+				channel.position(end);
+			} else {
+				// the journal is new, or the snapshot already holds all of its changes
+				generation = snapshotGeneration + 1;
+				writeHeader(channel, generation);
+			}
+
+			InventoryJournal journal = new InventoryJournal(channel, created && snapshotGeneration < 0, inventory, snapshotFile, generation);
+			inventory.setJournal(journal);
+			if (migrate) {
+				journal.migrate();
+			}
+			return journal;
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 *
+	 * @return true if the journal file was created when it was opened and there was
+	 * no snapshot, so there was nothing to load
+	 */
+	public boolean isNew() {
+		return created;
+	}
+	/**
+	 * Wait until every change recorded so far is on the disk.
+	 * @throws IOException if the journal could not be written
+	 */
+	public synchronized void sync() throws IOException {
+		long target = appended;
+		boolean interrupted = false;
+		while (committed < target && failure == null) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+	/**
+	 * Save the whole inventory to the snapshot file and empty the journal.
+	 * The inventory cannot be changed while this runs, and reservations wait for it.
+	 * @throws IOException if the snapshot or the journal could not be written
+	 * @throws IllegalStateException if the journal was opened without a snapshot file
+	 */
+	public void checkpoint() throws IOException, IllegalStateException {
+		if (snapshotFile == null) {
+			throw new IllegalStateException("The journal was opened without a snapshot file.");
+		}
+
+		synchronized (inventory) {
+			Lock stock = inventory.stockLock().writeLock();
+			stock.lock();
+			try {
+				sync();
+				InventorySnapshot.write(snapshotFile, inventory, generation);
+				// the snapshot now holds every record, so the journal starts over
+				synchronized (this) {
+					generation++;
+					synchronized (channelLock) {
+						writeHeader(channel, generation);
+					}
+				}
+			} finally {
+				stock.unlock();
+			}
+		}
+	}
+	/**
+	 * Rewrite a replayed journal of an older format in the current format.
+	 * With a snapshot file this is a checkpoint. Without one the journal starts over
+	 * with a record adding each part and product, so it is briefly incomplete.
+	 */
+	private void migrate() throws IOException {
+		if (snapshotFile != null) {
+			checkpoint();
+			return;
+		}
+
+		synchronized (inventory) {
+			Lock stock = inventory.stockLock().writeLock();
+			stock.lock();
+			try {
+				sync();
+				synchronized (this) {
+					synchronized (channelLock) {
+						writeHeader(channel, generation);
+					}
+				}
+				for (Part part : inventory.getPartSnapshot()) {
+					partAdded(part);
+				}
+				for (Product product : inventory.getProductSnapshot()) {
+					productAdded(product);
+				}
+				sync();
+			} finally {
+				stock.unlock();
+			}
+		}
+	}
+	/**
+	 * Write every recorded change to the disk and close the journal.
+	 * Changes made to the inventory after this are no longer recorded.
+	 * @throws IOException if the journal could not be written
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (closed) return;
+			closed = true;
+			notifyAll();
+		}
+
+		boolean interrupted = false;
+		while (committer.isAlive()) {
+			try {
+				committer.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		channel.close();
+		synchronized (this) {
+			if (failure != null) {
+				throw failure;
+			}
+		}
+	}
+
+	// ------------------------ RECORDING ------------------------
+
+	synchronized void partAdded(Part part) {
+		if (!beginRecord(ADD_PART)) return;
+		writePart(part);
+		endRecord();
+	}
+	synchronized void partRemoved(Part part) {
+		if (!beginRecord(REMOVE_PART)) return;
+		writeInt(part.getPartID());
+		endRecord();
+	}
+	synchronized void partUpdated(Part oldPart, Part newPart) {
+		if (!beginRecord(UPDATE_PART)) return;
+		writeInt(oldPart.getPartID());
+		writePart(newPart);
+		endRecord();
+	}
+	synchronized void productAdded(Product product) {
+		if (!beginRecord(ADD_PRODUCT)) return;
+		writeProduct(product);
+		endRecord();
+	}
+	synchronized void productRemoved(Product product) {
+		if (!beginRecord(REMOVE_PRODUCT)) return;
+		writeInt(product.getProductID());
+		endRecord();
+	}
+	synchronized void productUpdated(Product oldProduct, Product newProduct) {
+		if (!beginRecord(UPDATE_PRODUCT)) return;
+		writeInt(oldProduct.getProductID());
+		writeProduct(newProduct);
+		endRecord();
+	}
+	synchronized void stockMoved(Part[] parts) {
+		if (!beginRecord(MOVE_STOCK)) return;
+		writeInt(parts.length);
+		for (Part part : parts) {
+			writeInt(part.getPartID());
+			writeInt(part.getInstock());
+		}
+		endRecord();
+	}
+
+	/**
+	 * Start a record, unless the journal is closed or has already failed.
+	 */
+	private boolean beginRecord(byte type) {
+		if (closed || failure != null) return false;
+		record.reset();
+		record.write(type);
+		return true;
+	}
+	/**
+	 * Add the record to the pending records as its length, body and checksum,
+	 * and wake up the commit thread.
+	 */
+	private void endRecord() {
+		crc.reset();
+		crc.update(record.toByteArray(), 0, record.size());
+
+		DataOutputStream out = new DataOutputStream(pending);
+		try {
+			out.writeInt(record.size());
+			record.writeTo(out);
+			out.writeInt((int)crc.getValue());
+		} catch (IOException e) {
+			// cannot happen when writing to memory
+			throw new IllegalStateException(e);
+		}
+		appended++;
+		notifyAll();
+	}
+	private void writePart(Part part) {
+		try {
+			recordOut.writeByte(part instanceof Outsourced ? OUTSOURCED : INHOUSE);
+			recordOut.writeInt(part.getPartID());
+			recordOut.writeUTF(part.getName());
+			recordOut.writeLong(part.getPriceCents());
+			recordOut.writeInt(part.getInstock());
+			recordOut.writeInt(part.getMin());
+			recordOut.writeInt(part.getMax());
+			if (part instanceof Outsourced) {
+				recordOut.writeUTF(((Outsourced)part).getCompanyName());
+			} else {
+				recordOut.writeInt(part instanceof Inhouse ? ((Inhouse)part).getMachineID() : 0);
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	private void writeProduct(Product product) {
+		try {
+			recordOut.writeInt(product.getProductID());
+			recordOut.writeUTF(product.getName());
+			recordOut.writeLong(product.getPriceCents());
+			recordOut.writeInt(product.getInstock());
+			recordOut.writeInt(product.getMin());
+			recordOut.writeInt(product.getMax());
+			// each contained part is recorded once with its values, which may be older than
+			// the inventory's, and the number of units of it
+			recordOut.writeInt(product.getPartLines().size());
+			for (Part part : product.getPartLines()) {
+				writePart(part);
+				recordOut.writeInt(product.getPartQuantity(part.getPartID()));
+			}
+			// the assemblies are recorded by ID number
+			recordOut.writeInt(product.getAssemblies().size());
+			for (Product assembly : product.getAssemblies()) {
+				recordOut.writeInt(assembly.getProductID());
+				recordOut.writeInt(product.getAssemblyQuantity(assembly.getProductID()));
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	private void writeInt(int value) {
+		try {
+			recordOut.writeInt(value);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// ------------------------ COMMITTING ------------------------
+
+	/**
+	 * Run by the commit thread: write the pending records in groups, flushing
+	 * each group to the disk once, until the journal is closed.
+	 */
+	private void commitRecords() {
+		while (true) {
+			ByteArrayOutputStream group;
+			long groupEnd;
+			synchronized (this) {
+				while (pending.size() == 0 && !closed) {
+					waitQuietly(0);
+				}
+				if (pending.size() == 0) return;
+
+				// give other changes a moment to join this group
+				long deadline = System.nanoTime() + COMMIT_DELAY * 1_000_000;
+				long left;
+				while (!closed && (left = deadline - System.nanoTime()) > 0) {
+					waitQuietly(Math.max(1, left / 1_000_000));
+				}
+				group = pending;
+				groupEnd = appended;
+				pending = new ByteArrayOutputStream();
+			}
+
+			IOException error = null;
+			synchronized (channelLock) {
+				try {
+					ByteBuffer buffer = ByteBuffer.wrap(group.toByteArray());
+					while (buffer.hasRemaining()) {
+						channel.write(buffer);
+					}
+					channel.force(false);
+				} catch (IOException e) {
+					error = e;
+				}
+			}
+
+			synchronized (this) {
+				if (error != null) {
+					failure = error;
+					pending.reset();
+				} else {
+					committed = groupEnd;
+				}
+				notifyAll();
+				if (error != null) return;
+			}
+		}
+	}
+	private void waitQuietly(long millis) {
+		try {
+			wait(millis);
+		} catch (InterruptedException e) {
+			// the commit thread only stops when the journal is closed
+		}
+	}
+
+	// ------------------------ REPLAYING ------------------------
+
+	private static void writeHeader(FileChannel channel, long generation) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC).putInt(VERSION).putLong(generation).flip();
+		channel.truncate(0);
+		while (header.hasRemaining()) {
+			channel.write(header, header.position());
+		}
+		channel.force(true);
+		channel.position(HEADER_SIZE);
+	}
+	private static int readVersion(FileChannel channel) throws IOException {
+		return readHeader(channel).getInt(4);
+	}
+	private static long readGeneration(FileChannel channel) throws IOException {
+		return readHeader(channel).getLong(8);
+	}
+	private static ByteBuffer readHeader(FileChannel channel) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		while (header.hasRemaining()) {
+			if (channel.read(header, header.position()) < 0) break;
+		}
+		header.flip();
+		if (header.remaining() < HEADER_SIZE || header.getInt(0) != MAGIC
+				|| header.getInt(4) < DOLLARS_VERSION || header.getInt(4) > VERSION) {
+			throw new IOException("The file is not an inventory journal.");
+		}
+		return header;
+	}
+	/**
+	 * Apply every complete record in the journal to the inventory.
+	 * @return the position just past the last complete record
+	 */
+	private static long replay(FileChannel channel, Inventory inventory, int version) throws IOException {
+		channel.position(HEADER_SIZE);
+		DataInputStream in = new DataInputStream(new BufferedInputStream(uncloseable(Channels.newInputStream(channel)), 1 << 16));
+
+		List<byte[]> records = new ArrayList<>();
+		long end = HEADER_SIZE;
+		CRC32 crc = new CRC32();
+		while (true) {
+			byte[] body;
+			try {
+				int length = in.readInt();
+				if (length <= 0 || length > channel.size() - end) break;
+				body = new byte[length];
+				in.readFully(body);
+				crc.reset();
+				crc.update(body, 0, length);
+				if (in.readInt() != (int)crc.getValue()) break;
+			} catch (EOFException e) {
+				break;
+			}
+			records.add(body);
+			end += 8 + body.length;
+		}
+
+		Replay replay = new Replay(version);
+		inventory.applyBatch(inv -> {
+			for (byte[] body : records) {
+				replay.apply(body, inv);
+			}
+		});
+		Part.seedPartID(replay.maxPartID);
+		Product.seedProductID(replay.maxProductID);
+		return end;
+	}
+	/**
+	 * The replay must not close the channel it reads from.
+	 */
+	private static InputStream uncloseable(InputStream in) {
+		return new FilterInputStream(in) {
+			@Override
+			public void close() {
+			}
+		};
+	}
+
+	/**
+	 * Rebuilds the parts and products described by the records.
+	 */
+	private static final class Replay {
+		// prices are recorded as doubles of dollars rather than longs of cents
+		private final boolean dollars;
+		// products are recorded with their assemblies
+		private final boolean assemblies;
+		// products are recorded with a quantity for each part rather than one entry for every unit
+		private final boolean partLines;
+		private int maxPartID;
+		private int maxProductID;
+
+		Replay(int version) {
+			this.dollars = version == DOLLARS_VERSION;
+			this.assemblies = version >= NO_STOCK_MOVES_VERSION;
+			this.partLines = version > PART_UNITS_VERSION;
+		}
+
+		void apply(byte[] body, Inventory inventory) throws IllegalStateException {
+			try {
+				DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+				switch (in.readByte()) {
+				case ADD_PART:
+					inventory.addPart(readPart(in));
+					break;
+				case REMOVE_PART: {
+					Part part = inventory.lookupPart(in.readInt());
+					if (part != null) inventory.removePart(part);
+					break;
+				}
+				case UPDATE_PART: {
+					Part oldPart = inventory.lookupPart(in.readInt());
+					Part newPart = readPart(in);
+					if (oldPart != null) {
+						inventory.updatePart(oldPart, newPart);
+					} else {
+						inventory.addPart(newPart);
+					}
+					break;
+				}
+				case ADD_PRODUCT:
+					inventory.addProduct(readProduct(in, inventory));
+					break;
+				case REMOVE_PRODUCT: {
+					Product product = inventory.lookupProduct(in.readInt());
+					if (product != null) inventory.removeNotEmptyProduct(product);
+					break;
+				}
+				case UPDATE_PRODUCT: {
+					Product oldProduct = inventory.lookupProduct(in.readInt());
+					Product newProduct = readProduct(in, inventory);
+					if (oldProduct != null) {
+						inventory.updateProduct(oldProduct, newProduct);
+					} else {
+						inventory.addProduct(newProduct);
+					}
+					break;
+				}
+				case MOVE_STOCK: {
+					int count = in.readInt();
+					for (int i = 0; i < count; i++) {
+						Part part = inventory.lookupPart(in.readInt());
+						int instock = in.readInt();
+						if (part != null) {
+							// the stock was already checked when it was moved
+							synchronized (part) {
+								part.writeStock(instock);
+							}
+							part.changed();
+						}
+					}
+					break;
+				}
+				default:
+					throw new IllegalStateException("Unknown journal record type.");
+				}
+			} catch (IOException e) {
+				throw new IllegalStateException("A journal record is damaged.", e);
+			}
+		}
+		private Part readPart(DataInputStream in) throws IOException {
+			byte kind = in.readByte();
+			int partID = in.readInt();
+			String name = in.readUTF();
+			long priceCents = readPrice(in);
+			int instock = in.readInt();
+			int min = in.readInt();
+			int max = in.readInt();
+			maxPartID = Math.max(maxPartID, partID);
+			if (kind == OUTSOURCED) {
+				return new Outsourced(partID, name, priceCents, instock, min, max, in.readUTF());
+			}
+			return new Inhouse(partID, name, priceCents, instock, min, max, in.readInt());
+		}
+		private Product readProduct(DataInputStream in, Inventory inventory) throws IOException {
+			int productID = in.readInt();
+			String name = in.readUTF();
+			long priceCents = readPrice(in);
+			int instock = in.readInt();
+			int min = in.readInt();
+			int max = in.readInt();
+			Product product = new Product(productID, name, priceCents, instock, min, max, new ArrayList<>());
+			int partCount = in.readInt();
+			for (int i = 0; i < partCount; i++) {
+				Part part = readPart(in);
+				// share the inventory's part if it still has the same values
+				Part current = inventory.lookupPart(part.getPartID());
+				product.addPart(current != null && sameValues(current, part) ? current : part,
+						partLines ? in.readInt() : 1);
+			}
+			maxProductID = Math.max(maxProductID, productID);
+			int assemblyCount = assemblies ? in.readInt() : 0;
+			for (int i = 0; i < assemblyCount; i++) {
+				// an assembly is recorded by ID number, and left out if it is no longer in the inventory
+				Product assembly = inventory.lookupProduct(in.readInt());
+				int quantity = in.readInt();
+				if (assembly != null) {
+					product.addAssembly(assembly, quantity);
+				}
+			}
+			return product;
+		}
+		private long readPrice(DataInputStream in) throws IOException {
+			return dollars ? Money.fromDollars(in.readDouble()) : in.readLong();
+		}
+		private static boolean sameValues(Part a, Part b) {
+			if (a.getClass() != b.getClass()) return false;
+			if (a.getPartID() != b.getPartID() || !a.getName().equals(b.getName())
+					|| a.getPriceCents() != b.getPriceCents() || a.getInstock() != b.getInstock()
+					|| a.getMin() != b.getMin() || a.getMax() != b.getMax()) {
+				return false;
+			}
+			if (a instanceof Outsourced) {
+				return ((Outsourced)a).getCompanyName().equals(((Outsourced)b).getCompanyName());
+			}
+			return ((Inhouse)a).getMachineID() == ((Inhouse)b).getMachineID();
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package inventory.model;
+
+/**
+ * Receives the changes made to an inventory, in the order they were made.
+ * Every method does nothing by default, so only the changes of interest need to be handled.
+ *
+ * Parts and products being added, removed or replaced are reported on the thread that made
+ * the change while it holds the lock on the inventory, so a listener must return quickly and
+ * must not wait on another thread that uses the inventory. Changes to the values of a part or
+ * product already in the inventory are reported on the thread that called the setter.
+ * @author Aaron Echols
+ *
+ */
+public interface InventoryListener {
+
+	/**
+	 * @param part the part added to the end of the inventory
+	 */
+	default void partAdded(Part part) {}
+	/**
+	 * Called instead of {@link #partAdded(Part)} when a whole catalog is loaded into an empty
+	 * columnar inventory, so that no Part object has to be created for each part.
+	 * The parts can be found with {@link Inventory#lookupPart(int)}.
+	 * @param partIDs the ID numbers of the loaded parts, in list order
+	 */
+	default void partsLoaded(int[] partIDs) {}
+	/**
+	 * @param part the part removed from the inventory
+	 */
+	default void partRemoved(Part part) {}
+	/**
+	 * @param oldPart the part that was replaced
+	 * @param newPart the part that took its place
+	 */
+	default void partReplaced(Part oldPart, Part newPart) {}
+	/**
+	 * @param part a part in the inventory whose values were changed through its setters
+	 */
+	default void partChanged(Part part) {}
+	/**
+	 * @param product the product added to the end of the inventory
+	 */
+	default void productAdded(Product product) {}
+	/**
+	 * @param product the product removed from the inventory
+	 */
+	default void productRemoved(Product product) {}
+	/**
+	 * @param oldProduct the product that was replaced
+	 * @param newProduct the product that took its place
+	 */
+	default void productReplaced(Product oldProduct, Product newProduct) {}
+	/**
+	 * @param product a product in the inventory whose values were changed through its setters
+	 */
+	default void productChanged(Product product) {}
+	/**
+	 * Called before the first change of a batch made with {@link Inventory#applyBatch}.
+	 */
+	default void batchStarted() {}
+	/**
+	 * Called after the last change of a batch made with {@link Inventory#applyBatch}.
+	 */
+	default void batchFinished() {}
+}
@@ -0,0 +1,377 @@
+package inventory.model;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Saves a whole inventory to a binary snapshot file and loads it back.
+ *
+ * The part values are stored column by column, so loading reads each column straight
+ * out of a memory-mapped file into the arrays of a columnar inventory, without
+ * creating or validating a Part object for every part. Views of the parts are then
+ * created as they are needed, and the part name and search indexes are built the
+ * first time a part is looked up by name or searched for.
+ *
+ * The assemblies of a product are saved by product ID number and linked once every
+ * product is loaded, so an assembly that is not in the inventory is not saved.
+ *
+ * A snapshot is written to a temporary file that replaces the old snapshot once it is
+ * complete, so a snapshot is never left half written.
+ * @author Aaron Echols
+ *
+ */
+public final class InventorySnapshot {
+
+	// "INVS" followed by the format version
+	private static final int MAGIC = 0x494E5653;
+	private static final int VERSION = 4;
+	// the first version held prices as doubles of dollars instead of longs of cents,
+	// the first two held no assemblies in products, and the first three held
+	// the parts of a product one unit at a time instead of as lines with a quantity
+	private static final int DOLLARS_VERSION = 1;
+	private static final int PARTS_ONLY_VERSION = 2;
+	private static final int PART_UNITS_VERSION = 3;
+	private static final int HEADER_SIZE = 32;
+
+	// part kinds
+	private static final byte INHOUSE = 0;
+	private static final byte OUTSOURCED = 1;
+
+	// how a product refers to a contained part
+	private static final byte INVENTORY_PART = 0;
+	private static final byte OWN_PART = 1;
+
+	private InventorySnapshot() {
+	}
+
+	/**
+	 * Save every part and product in an inventory to a snapshot file.
+	 * @param file the snapshot file, replaced if it exists
+	 * @param inventory the inventory to save
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(Path file, Inventory inventory) throws IOException {
+		write(file, inventory, 0);
+	}
+	/**
+	 * Load a snapshot file into an empty inventory. A columnar inventory
+	 * loads a large catalog the fastest.
+	 * @param file the snapshot file
+	 * @param inventory the empty inventory to load into
+	 * @throws IOException if the file cannot be read or is not an inventory snapshot
+	 * @throws IllegalStateException if the inventory already holds parts
+	 */
+	public static void read(Path file, Inventory inventory) throws IOException, IllegalStateException {
+		load(file, inventory);
+	}
+
+	/**
+	 * Save an inventory, marking the snapshot with the generation of the journal it includes.
+	 */
+	static void write(Path file, Inventory inventory, long generation) throws IOException {
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			Output out = new Output(channel);
+
+			// nothing can change while the inventory is being written
+			synchronized (inventory) {
+				PartColumns columns = inventory.partColumns();
+				List<Product> products = inventory.getProductSnapshot();
+
+				out.putInt(MAGIC);
+				out.putInt(VERSION);
+				out.putLong(generation);
+				out.putInt(columns.count);
+				out.putInt(columns.suppliers.size());
+				out.putInt(columns.names.length);
+				out.putInt(products.size());
+
+				for (int i = 0; i < columns.count; i++) out.putLong(columns.priceCents[i]);
+				for (int i = 0; i < columns.count; i++) out.putInt(columns.partIDs[i]);
+				for (int i = 0; i < columns.count; i++) out.putInt(columns.instocks[i]);
+				for (int i = 0; i < columns.count; i++) out.putInt(columns.mins[i]);
+				for (int i = 0; i < columns.count; i++) out.putInt(columns.maxes[i]);
+				for (int i = 0; i < columns.count; i++) out.putInt(columns.sources[i]);
+				for (int i = 0; i < columns.count; i++) out.putInt(columns.nameLengths[i]);
+				for (int i = 0; i < columns.count; i++) out.putByte(columns.inhouse[i] ? INHOUSE : OUTSOURCED);
+				for (char c : columns.names) out.putChar(c);
+				for (String supplier : columns.suppliers) out.putString(supplier);
+
+				for (Product product : products) {
+					writeProduct(out, product, inventory);
+				}
+			}
+
+			out.flush();
+			channel.force(true);
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	/**
+	 * Load a snapshot file into an empty inventory.
+	 * @return the generation of the journal the snapshot includes
+	 */
+	static long load(Path file, Inventory inventory) throws IOException, IllegalStateException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			int version = map.remaining() < HEADER_SIZE || map.getInt() != MAGIC ? -1 : map.getInt();
+			if (version != VERSION && version != PART_UNITS_VERSION && version != PARTS_ONLY_VERSION
+					&& version != DOLLARS_VERSION) {
+				throw new IOException("The file is not an inventory snapshot.");
+			}
+			boolean dollars = version == DOLLARS_VERSION;
+			boolean hasAssemblies = version >= PART_UNITS_VERSION;
+			boolean partLines = version == VERSION;
+			long generation = map.getLong();
+			int count = map.getInt();
+			int supplierCount = map.getInt();
+			int nameChars = map.getInt();
+			int productCount = map.getInt();
+
+			try {
+				// each column is copied out of the file in one go
+				PartColumns columns = new PartColumns(count, new ArrayList<>(supplierCount), new char[nameChars]);
+				if (dollars) {
+					for (int i = 0; i < count; i++) {
+						columns.priceCents[i] = Money.fromDollars(map.getDouble());
+					}
+				} else {
+					map.asLongBuffer().get(columns.priceCents);
+					skip(map, count * 8L);
+				}
+				readInts(map, columns.partIDs);
+				readInts(map, columns.instocks);
+				readInts(map, columns.mins);
+				readInts(map, columns.maxes);
+				readInts(map, columns.sources);
+				readInts(map, columns.nameLengths);
+				for (int i = 0; i < count; i++) {
+					columns.inhouse[i] = map.get() == INHOUSE;
+				}
+				map.asCharBuffer().get(columns.names);
+				skip(map, nameChars * 2L);
+				for (int i = 0; i < supplierCount; i++) {
+					columns.suppliers.add(readString(map));
+				}
+
+				int maxPartID = 0;
+				int used = 0;
+				for (int i = 0; i < count; i++) {
+					columns.nameStarts[i] = used;
+					used += columns.nameLengths[i];
+					maxPartID = Math.max(maxPartID, columns.partIDs[i]);
+				}
+				if (used != nameChars) {
+					throw new IOException("The inventory snapshot is damaged.");
+				}
+				inventory.loadParts(columns);
+
+				// products are few compared to parts, so they are created right away
+				List<Product> products = new ArrayList<>(productCount);
+				List<int[]> assemblyLines = new ArrayList<>(productCount);
+				int maxProductID = 0;
+				for (int i = 0; i < productCount; i++) {
+					Product product = readProduct(map, inventory, dollars, partLines);
+					products.add(product);
+					assemblyLines.add(hasAssemblies ? readAssemblyLines(map) : new int[0]);
+					maxProductID = Math.max(maxProductID, product.getProductID());
+					for (Part part : product.getPartLines()) {
+						maxPartID = Math.max(maxPartID, part.getPartID());
+					}
+				}
+				linkAssemblies(products, assemblyLines);
+				inventory.addProducts(products);
+
+				Part.seedPartID(maxPartID);
+				Product.seedProductID(maxProductID);
+			} catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException | IllegalArgumentException e) {
+				throw new IOException("The inventory snapshot is damaged.", e);
+			}
+			return generation;
+		}
+	}
+
+	private static void writeProduct(Output out, Product product, Inventory inventory) throws IOException {
+		out.putInt(product.getProductID());
+		out.putString(product.getName());
+		out.putLong(product.getPriceCents());
+		out.putInt(product.getInstock());
+		out.putInt(product.getMin());
+		out.putInt(product.getMax());
+
+		// each part is written once with the number of units of it
+		out.putInt(product.getPartLines().size());
+		for (Part part : product.getPartLines()) {
+			// a part that is no longer the inventory's part keeps its own values
+			if (inventory.lookupPart(part.getPartID()) == part) {
+				out.putByte(INVENTORY_PART);
+				out.putInt(part.getPartID());
+			} else {
+				out.putByte(OWN_PART);
+				writePart(out, part);
+			}
+			out.putInt(product.getPartQuantity(part.getPartID()));
+		}
+		
+		out.putInt(product.getAssemblies().size());
+		for (Product assembly : product.getAssemblies()) {
+			out.putInt(assembly.getProductID());
+			out.putInt(product.getAssemblyQuantity(assembly.getProductID()));
+		}
+	}
+	private static void writePart(Output out, Part part) throws IOException {
+		out.putByte(part instanceof Outsourced ? OUTSOURCED : INHOUSE);
+		out.putInt(part.getPartID());
+		out.putString(part.getName());
+		out.putLong(part.getPriceCents());
+		out.putInt(part.getInstock());
+		out.putInt(part.getMin());
+		out.putInt(part.getMax());
+		if (part instanceof Outsourced) {
+			out.putString(((Outsourced)part).getCompanyName());
+		} else {
+			out.putInt(part instanceof Inhouse ? ((Inhouse)part).getMachineID() : 0);
+		}
+	}
+	private static Product readProduct(ByteBuffer map, Inventory inventory, boolean dollars, boolean partLines) throws IOException {
+		int productID = map.getInt();
+		String name = readString(map);
+		long priceCents = readPrice(map, dollars);
+		int instock = map.getInt();
+		int min = map.getInt();
+		int max = map.getInt();
+
+		Product product = new Product(productID, name, priceCents, instock, min, max, new ArrayList<>());
+		int partCount = map.getInt();
+		for (int i = 0; i < partCount; i++) {
+			Part part;
+			if (map.get() == INVENTORY_PART) {
+				part = inventory.lookupPart(map.getInt());
+				if (part == null) {
+					throw new IOException("The inventory snapshot is damaged.");
+				}
+			} else {
+				part = readPart(map, dollars);
+			}
+			// older snapshots hold one entry for every unit
+			product.addPart(part, partLines ? map.getInt() : 1);
+		}
+		return product;
+	}
+	/**
+	 * Read the assembly lines of a product as pairs of product ID number and quantity.
+	 */
+	private static int[] readAssemblyLines(ByteBuffer map) {
+		int[] lines = new int[map.getInt() * 2];
+		map.asIntBuffer().get(lines);
+		skip(map, lines.length * 4L);
+		return lines;
+	}
+	/**
+	 * Add the assemblies to the loaded products, once every product can be found.
+	 */
+	private static void linkAssemblies(List<Product> products, List<int[]> assemblyLines) {
+		Map<Integer, Product> productsByID = new HashMap<>();
+		for (Product product : products) {
+			productsByID.put(product.getProductID(), product);
+		}
+		for (int i = 0; i < products.size(); i++) {
+			int[] lines = assemblyLines.get(i);
+			for (int j = 0; j < lines.length; j += 2) {
+				Product assembly = productsByID.get(lines[j]);
+				if (assembly != null) {
+					products.get(i).addAssembly(assembly, lines[j + 1]);
+				}
+			}
+		}
+	}
+	private static Part readPart(ByteBuffer map, boolean dollars) {
+		byte kind = map.get();
+		int partID = map.getInt();
+		String name = readString(map);
+		long priceCents = readPrice(map, dollars);
+		int instock = map.getInt();
+		int min = map.getInt();
+		int max = map.getInt();
+		if (kind == OUTSOURCED) {
+			return new Outsourced(partID, name, priceCents, instock, min, max, readString(map));
+		}
+		return new Inhouse(partID, name, priceCents, instock, min, max, map.getInt());
+	}
+	private static long readPrice(ByteBuffer map, boolean dollars) {
+		return dollars ? Money.fromDollars(map.getDouble()) : map.getLong();
+	}
+
+	private static void readInts(ByteBuffer map, int[] column) {
+		map.asIntBuffer().get(column);
+		skip(map, column.length * 4L);
+	}
+	private static void skip(ByteBuffer map, long bytes) {
+		if (bytes > map.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		map.position(map.position() + (int)bytes);
+	}
+	private static String readString(ByteBuffer map) {
+		char[] chars = new char[map.getInt()];
+		map.asCharBuffer().get(chars);
+		skip(map, chars.length * 2L);
+		return new String(chars);
+	}
+
+	/**
+	 * Writes values to a file channel through a buffer.
+	 */
+	private static final class Output {
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+
+		Output(FileChannel channel) {
+			this.channel = channel;
+		}
+
+		void putByte(byte value) throws IOException {
+			room(1).put(value);
+		}
+		void putChar(char value) throws IOException {
+			room(2).putChar(value);
+		}
+		void putInt(int value) throws IOException {
+			room(4).putInt(value);
+		}
+		void putLong(long value) throws IOException {
+			room(8).putLong(value);
+		}
+		void putString(String value) throws IOException {
+			putInt(value.length());
+			for (int i = 0; i < value.length(); i++) {
+				putChar(value.charAt(i));
+			}
+		}
+		void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+		private ByteBuffer room(int bytes) throws IOException {
+			if (buffer.remaining() < bytes) {
+				flush();
+			}
+			return buffer;
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package inventory.model;
+
+/**
+ * Amounts of money are kept as a long number of US cents, so that adding up prices is exact
+ * and needs no objects. This class converts between cents and the dollar amounts used
+ * at the edges of the application, and writes and reads cents as plain decimal text.
+ * @author Aaron Echols
+ *
+ */
+public final class Money {
+
+	/**
+	 * The largest price accepted, ten billion dollars. Adding up this many cents
+	 * for over nine million parts still fits in a long.
+	 */
+	public static final long MAX_CENTS = 1_000_000_000_000L;
+
+	/**
+	 * Returned by {@link #parseDigits} when the text is not an amount.
+	 */
+	public static final long NOT_AN_AMOUNT = Long.MIN_VALUE;
+	/**
+	 * Returned by {@link #parseDigits} when the amount is more than {@link #MAX_CENTS}.
+	 */
+	public static final long TOO_LARGE = Long.MIN_VALUE + 1;
+	/**
+	 * Passed to {@link #parseDigits} when the digits are not grouped.
+	 */
+	public static final char NO_GROUPING = 0;
+
+	private Money() {}
+
+	/**
+	 * Convert a dollar amount to cents, rounded to the nearest cent.
+	 * @param dollars the amount in dollars
+	 * @return the amount in cents
+	 * @throws IllegalArgumentException if the amount is not a number or is too large
+	 */
+	public static long fromDollars(double dollars) throws IllegalArgumentException {
+		if (Double.isNaN(dollars) || Math.abs(dollars) > MAX_CENTS / 100) {
+			throw new IllegalArgumentException("Price is not a valid amount.");
+		}
+		return Math.round(dollars * 100);
+	}
+	/**
+	 * Convert cents to a dollar amount, for display and for the older double based methods.
+	 * @param cents the amount in cents
+	 * @return the amount in dollars
+	 */
+	public static double toDollars(long cents) {
+		return cents / 100.0;
+	}
+	/**
+	 * Check that an amount can be used as a price.
+	 * @param cents the amount in cents
+	 * @return the amount
+	 * @throws IllegalArgumentException if the amount is negative or too large
+	 */
+	static long checkPrice(long cents) throws IllegalArgumentException {
+		if (cents < 0) {
+			throw new IllegalArgumentException("Price cannot be negative");
+		} else if (cents > MAX_CENTS) {
+			throw new IllegalArgumentException("Price cannot be more than " + toString(MAX_CENTS));
+		}
+		return cents;
+	}
+
+	/**
+	 * Write an amount as a plain decimal number of dollars with two decimal places, like 1234.50.
+	 * @param cents the amount in cents
+	 * @return the amount as text
+	 */
+	public static String toString(long cents) {
+		StringBuilder text = new StringBuilder(24);
+		appendTo(text, cents);
+		return text.toString();
+	}
+	/**
+	 * Append an amount as a plain decimal number of dollars with two decimal places.
+	 * @param out the builder to append to
+	 * @param cents the amount in cents
+	 * @return the builder
+	 */
+	public static StringBuilder appendTo(StringBuilder out, long cents) {
+		if (cents < 0) {
+			out.append('-');
+		}
+		// Long.MIN_VALUE has no positive counterpart, so the digits are taken from the negative value
+		long negative = cents < 0 ? cents : -cents;
+		out.append(-(negative / 100)).append('.');
+		int fraction = (int)-(negative % 100);
+		out.append((char)('0' + fraction / 10)).append((char)('0' + fraction % 10));
+		return out;
+	}
+	/**
+	 * Read a plain decimal number of dollars, like 1234.5 or -0.25. Digits after the second
+	 * decimal place are rounded to the nearest cent, with halves rounded away from zero.
+	 * @param text the amount as text
+	 * @return the amount in cents
+	 * @throws IllegalArgumentException if the text is not a decimal number or is too large
+	 */
+	public static long parse(CharSequence text) throws IllegalArgumentException {
+		int start = 0;
+		boolean negative = false;
+		if (text.length() > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+			negative = text.charAt(0) == '-';
+			start++;
+		}
+
+		long cents = parseDigits(text, start, text.length(), '.', NO_GROUPING);
+		if (cents == TOO_LARGE) {
+			throw new IllegalArgumentException("\"" + text + "\" is too large an amount.");
+		} else if (cents == NOT_AN_AMOUNT) {
+			throw new IllegalArgumentException("\"" + text + "\" is not an amount.");
+		}
+		return negative ? -cents : cents;
+	}
+	/**
+	 * Read the digits of an amount of dollars without a sign, for {@link #parse(CharSequence)}
+	 * and for the currency formats of {@link inventory.util.PriceFormatter}. Digits after the
+	 * second decimal place are rounded to the nearest cent, with halves rounded up.
+	 * A period is also read as the decimal separator, unless it is the grouping separator.
+	 * @param text the text holding the amount
+	 * @param start the position of the first digit
+	 * @param end the position after the last digit
+	 * @param decimalSeparator the character before the decimal places
+	 * @param groupingSeparator the character that may separate groups of whole dollar digits,
+	 * any space when it is a space, or {@link #NO_GROUPING}
+	 * @return the amount in cents, {@link #NOT_AN_AMOUNT} or {@link #TOO_LARGE}
+	 */
+	public static long parseDigits(CharSequence text, int start, int end, char decimalSeparator, char groupingSeparator) {
+		long cents = 0;
+		int digits = 0;
+		int fractionDigits = -1;
+		boolean roundUp = false;
+		for (int i = start; i < end; i++) {
+			char c = text.charAt(i);
+			if (c >= '0' && c <= '9') {
+				digits++;
+				if (fractionDigits < 2) {
+					cents = cents * 10 + (c - '0');
+					if (cents > MAX_CENTS) return TOO_LARGE;
+					if (fractionDigits >= 0) fractionDigits++;
+				} else if (fractionDigits == 2) {
+					roundUp = c >= '5';
+					fractionDigits++;
+				}
+			} else if (fractionDigits < 0 && (c == decimalSeparator || (c == '.' && groupingSeparator != '.'))) {
+				fractionDigits = 0;
+			} else if (fractionDigits < 0 && digits > 0 && isGroupingSeparator(c, groupingSeparator)) {
+				continue;
+			} else {
+				return NOT_AN_AMOUNT;
+			}
+		}
+		if (digits == 0) return NOT_AN_AMOUNT;
+
+		// scale to cents for the decimal places that were left out
+		for (int places = Math.max(fractionDigits, 0); places < 2; places++) {
+			cents *= 10;
+		}
+		if (roundUp) cents++;
+		return cents > MAX_CENTS ? TOO_LARGE : cents;
+	}
+	private static boolean isGroupingSeparator(char c, char groupingSeparator) {
+		if (groupingSeparator == NO_GROUPING) return false;
+		if (c == groupingSeparator) return true;
+		// locales that group with a no-break space are also read with a plain space
+		return Character.isSpaceChar(groupingSeparator) && Character.isSpaceChar(c);
+	}
+}
@@ -0,0 +1,139 @@
+package inventory.model;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A case insensitive index from a name to the ID numbers of the items with that name.
+ * ID numbers are kept in the order they were added so that a lookup returns
+ * the same item a front-to-back scan of the inventory would have found.
+ * An item added more than once keeps the place of its first copy.
+ * @author Aaron Echols
+ *
+ */
+final class NameIndex {
+
+	/**
+	 * Returned by {@link #first(String)} when no item has the given name.
+	 */
+	static final int NONE = -1;
+
+	private final Map<String, Entry> ids = new HashMap<>();
+
+	/**
+	 * Add an item to the index.
+	 * @param name the name of the item
+	 * @param id the ID number of the item
+	 */
+	void add(String name, int id) {
+		add(key(name), id, 1);
+	}
+	/**
+	 * Remove one occurrence of an item from the index.
+	 * @param name the name the item was indexed under
+	 * @param id the ID number of the item
+	 * @return true if the ID number is still indexed under that name
+	 * (the same item was added more than once), false if not
+	 */
+	boolean remove(String name, int id) {
+		String key = key(name);
+		Entry entry = ids.get(key);
+		if (entry == null) return false;
+
+		if (entry.id == id) {
+			if (--entry.copies > 0) return true;
+			entry.dropFirst(ids, key);
+			return false;
+		}
+		Integer copies = entry.later == null ? null : entry.later.get(id);
+		if (copies == null) return false;
+		if (copies > 1) {
+			entry.later.put(id, copies - 1);
+			return true;
+		}
+		entry.later.remove(id);
+		return false;
+	}
+	/**
+	 * Move every occurrence of an item to a new name after the item was renamed.
+	 * The item goes after the items that already have the new name, as if it had been added again.
+	 * @param oldName the name the item was indexed under
+	 * @param newName the new name of the item
+	 * @param id the ID number of the item
+	 */
+	void rename(String oldName, String newName, int id) {
+		String oldKey = key(oldName);
+		String newKey = key(newName);
+		if (oldKey.equals(newKey)) return;
+		Entry entry = ids.get(oldKey);
+		if (entry == null) return;
+
+		int copies;
+		if (entry.id == id) {
+			copies = entry.copies;
+			entry.dropFirst(ids, oldKey);
+		} else {
+			Integer later = entry.later == null ? null : entry.later.remove(id);
+			if (later == null) return;
+			copies = later;
+		}
+		add(newKey, id, copies);
+	}
+	/**
+	 *
+	 * @param name the name to find (case insensitive)
+	 * @return the ID number of the first item added with that name,
+	 * {@link #NONE} if there is no such item
+	 */
+	int first(String name) {
+		Entry found = ids.get(key(name));
+		return found == null ? NONE : found.id;
+	}
+
+	private void add(String key, int id, int copies) {
+		Entry entry = ids.get(key);
+		if (entry == null) {
+			ids.put(key, new Entry(id, copies));
+		} else if (entry.id == id) {
+			entry.copies += copies;
+		} else {
+			if (entry.later == null) entry.later = new LinkedHashMap<>();
+			entry.later.merge(id, copies, Integer::sum);
+		}
+	}
+	private static String key(String name) {
+		return name.toLowerCase();
+	}
+
+	/**
+	 * The items with one name. Most names belong to a single item, so the first
+	 * is held directly and the others only get a map once there are any.
+	 */
+	private static final class Entry {
+		int id;
+		int copies;
+		// the other ID numbers in the order they were added, with their number of copies
+		LinkedHashMap<Integer, Integer> later;
+
+		Entry(int id, int copies) {
+			this.id = id;
+			this.copies = copies;
+		}
+		/**
+		 * Drop the first item, moving the next one up or removing the name if there is none.
+		 */
+		void dropFirst(Map<String, Entry> ids, String key) {
+			if (later == null || later.isEmpty()) {
+				ids.remove(key);
+				return;
+			}
+			Iterator<Map.Entry<Integer, Integer>> next = later.entrySet().iterator();
+			Map.Entry<Integer, Integer> first = next.next();
+			next.remove();
+			id = first.getKey();
+			copies = first.getValue();
+		}
+	}
+}
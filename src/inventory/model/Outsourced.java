@@ -1,8 +1,5 @@
 package inventory.model;
 
-import javafx.beans.property.SimpleStringProperty;
-import javafx.beans.property.StringProperty;
-
 /**
  * An individual part that is made purchased from a supplier.
  * Includes the company name which supplies the part.
@@ -11,7 +8,7 @@ import javafx.beans.property.StringProperty;
  */
 public class Outsourced extends Part{
 	
-	private StringProperty companyName = new SimpleStringProperty();
+	private String companyName;
 	
 	/**
 	 * Create a new part that is supplied by another company with default values.
@@ -53,13 +50,21 @@ public class Outsourced extends Part{
 		
 		setCompanyName(companyName);
 	}
+	/**
+	 * Restore a part that is supplied by another company and already has an ID number.
+	 * The values are not validated again.
+	 */
+	Outsourced(int partID, String name, long priceCents, int instock, int min, int max, String companyName) {
+		restore(partID, name, priceCents, instock, min, max);
+		this.companyName = companyName;
+	}
 	
 	/**
 	 * 
 	 * @return the name of the company the supplies the part
 	 */
 	public String getCompanyName() {
-		return companyName.get();
+		return companyName;
 	}
 	/**
 	 * 
@@ -69,10 +74,7 @@ public class Outsourced extends Part{
 		if(companyName == null || companyName.isEmpty()) {
 			companyName = "No Supplier Specified";
 		}
-		this.companyName.set(companyName);
-	}
-	
-	public StringProperty companyNameProperty() {
-		return companyName;
+		this.companyName = companyName;
+		changed();
 	}
 }
\ No newline at end of file
@@ -1,11 +1,6 @@
 package inventory.model;
 
-import javafx.beans.property.DoubleProperty;
-import javafx.beans.property.IntegerProperty;
-import javafx.beans.property.SimpleDoubleProperty;
-import javafx.beans.property.SimpleIntegerProperty;
-import javafx.beans.property.SimpleStringProperty;
-import javafx.beans.property.StringProperty;
+import java.util.Arrays;
 
 /**
  * An individual part stored in the inventory and/or included in a final product.
@@ -16,77 +11,80 @@ import javafx.beans.property.StringProperty;
  */
 public abstract class Part {
 	
-	private StringProperty name = new SimpleStringProperty();
-	private IntegerProperty partID = new SimpleIntegerProperty();
-	private DoubleProperty price = new SimpleDoubleProperty();
-	private IntegerProperty instock = new SimpleIntegerProperty();
-	private IntegerProperty min = new SimpleIntegerProperty();
-	private IntegerProperty max = new SimpleIntegerProperty();
+	private String name;
+	private int partID;
+	private long priceCents;
+	private int instock;
+	private int min;
+	private int max;
+	
+	// counts the changes to the stock, written under the lock of the part after the stock,
+	// so that a reservation planned without locks can tell if the stock changed since;
+	// negative while the part is out of its inventory, and never the same number twice
+	private volatile long stockVersion;
+	static final long RETIRED = -1;
+	
+	// told about every change to the values, replaced as a whole when one is added or removed
+	private volatile PartListener[] listeners = NO_LISTENERS;
+	private static final PartListener[] NO_LISTENERS = {};
+	
+	/**
+	 * The columnar store this part is a view of, null if the part holds its own values.
+	 */
+	private PartStore store;
 	
 	/**
-	 * A static counter that keeps up with the next part ID available for use.
+	 * Keeps up with the next part ID available for use. Safe to use from any thread.
 	 */
-	private static int nextPartID = 1;
+	private static final IDAllocator partIDs = new IDAllocator();
 	
 	/**
 	 * 
 	 * @return the name of the part
 	 */
     public String getName() {
-		return name.get();
+		return name;
 	}
     /**
      * 
      * @return the iD number of the part
      */
     public int getPartID() {
-		return partID.get();
+		return partID;
 	}
 	/**
 	 * 
 	 * @return the price in US dollars
 	 */
 	public double getPrice() {
-		return price.get();
+		return Money.toDollars(priceCents);
+	}
+	/**
+	 * 
+	 * @return the price in US cents
+	 */
+	public long getPriceCents() {
+		return priceCents;
 	}
 	/**
 	 * 
 	 * @return the amount of stock in the inventory
 	 */
 	public int getInstock() {
-		return instock.get();
+		return instock;
 	}
     /**
 	 * 
 	 * @return the minimum amount of stock to keep in the inventory
 	 */
 	public int getMin() {
-		return min.get();
+		return min;
 	}
 	/**
 	 * 
 	 * @return the maximum amount of stock to keep in the inventory
 	 */
 	public int getMax() {
-		return max.get();
-	}
-
-	public StringProperty nameProperty() {
-        return name;
-    }
-	public IntegerProperty partIDProperty() {
-		return partID;
-	}
-	public DoubleProperty priceProperty() {
-		return price;
-	}
-	public IntegerProperty instockProperty() {
-		return instock;
-	}
-	public IntegerProperty minProperty() {
-		return min;
-	}
-	public IntegerProperty maxProperty() {
 		return max;
 	}
 
@@ -98,7 +96,8 @@ public abstract class Part {
 		if(name == null || name.isEmpty()) {
 			name = "New Part";
 		}
-		this.name.set(name);
+		this.name = name;
+		changed();
 	}
 	/**
 	 * This will set the part ID to the next available number.
@@ -106,8 +105,16 @@ public abstract class Part {
 	 * every PartID is unique. That is why this method has no input parameter.
 	 */
 	public void setPartID(){
-		// assign the next available number and increment counter
-		this.partID.set(Part.nextPartID++);
+		// assign the next available number
+		this.partID = partIDs.next();
+	}
+	/**
+	 * Make sure parts created from now on get an ID number greater than one
+	 * that is already in use, for example by parts loaded from saved data.
+	 * @param usedPartID a part ID number that is already in use
+	 */
+	public static void seedPartID(int usedPartID) {
+		partIDs.seed(usedPartID);
 	}
 	/**
 	 * 
@@ -119,7 +126,16 @@ public abstract class Part {
 			throw new IllegalArgumentException("Price cannot be negative");
 		}
 		
-		this.price.set(price);
+		setPriceCents(Money.fromDollars(price));
+	}
+	/**
+	 * 
+	 * @param priceCents the price in US cents
+	 * @throws IllegalArgumentException if amount is negative or above {@link Money#MAX_CENTS}
+	 */
+	public void setPriceCents(long priceCents) throws IllegalArgumentException{
+		this.priceCents = Money.checkPrice(priceCents);
+		changed();
 	}
 	/**
 	 * 
@@ -133,7 +149,10 @@ public abstract class Part {
 			throw new IllegalArgumentException("Amount of stock needs to be less than or equal to the maximum.");
 		}
 		
-		this.instock.set(instock);
+		synchronized (this) {
+			writeStock(instock);
+		}
+		changed();
 	}
 	/**
 	 * 
@@ -144,7 +163,8 @@ public abstract class Part {
 		if(min > getMax()) {
 			throw new IllegalArgumentException("Minimum amount of stock needs to be less than or equal to the the maximum.");
 		}
-		this.min.set(min);
+		this.min = min;
+		changed();
 	}
 	/**
 	 * 
@@ -154,7 +174,34 @@ public abstract class Part {
 		if(max < getMin()) {
 			throw new IllegalArgumentException("Maximum amount of stock needs to be greater than or equal to the the minimum.");
 		}
-		this.max.set(max);
+		this.max = max;
+		changed();
+	}
+
+	/**
+	 * Be told about every change made to the values of this part from now on.
+	 * @param listener the listener to add
+	 */
+	public synchronized void addListener(PartListener listener) {
+		PartListener[] current = listeners;
+		PartListener[] updated = Arrays.copyOf(current, current.length + 1);
+		updated[current.length] = listener;
+		listeners = updated;
+	}
+	/**
+	 * Stop telling a listener about changes. A listener added more than once is removed once.
+	 * @param listener the listener to remove
+	 */
+	public synchronized void removeListener(PartListener listener) {
+		PartListener[] current = listeners;
+		for (int i = 0; i < current.length; i++) {
+			if (current[i] == listener) {
+				PartListener[] updated = Arrays.copyOf(current, current.length - 1);
+				System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+				listeners = updated;
+				return;
+			}
+		}
 	}
 
 	/**
@@ -164,6 +211,90 @@ public abstract class Part {
 	 * @param oldPart the part to get the part ID number from
 	 */
 	public void copyPartID(Part oldPart) {
-		this.partID.set(oldPart.getPartID());
+		this.partID = oldPart.getPartID();
+	}
+	/**
+	 * Give a new part the ID number it had somewhere else, for example in an imported file.
+	 * @param partID the ID number
+	 */
+	void assignPartID(int partID) {
+		this.partID = partID;
+	}
+	
+	/**
+	 * Set every value of a newly created part at once without validation or a new ID number.
+	 * Used to restore a part that was already validated when it was first created.
+	 */
+	void restore(int partID, String name, long priceCents, int instock, int min, int max) {
+		this.partID = partID;
+		this.name = name;
+		this.priceCents = priceCents;
+		this.instock = instock;
+		this.min = min;
+		this.max = max;
+	}
+	/**
+	 * 
+	 * @return the columnar store this part is a view of, null if the part holds its own values
+	 */
+	PartStore getStore() {
+		return store;
+	}
+	void setStore(PartStore store) {
+		this.store = store;
+	}
+	/**
+	 * Read before the values of a part that is about to be updated, and passed to
+	 * {@link Inventory#updatePart(Part, Part, long)}, so the update does not undo a
+	 * reservation made in the meantime.
+	 * @return the number of changes made to the stock so far, or -1 once the part
+	 * has been removed or replaced in its inventory
+	 */
+	public long getStockVersion() {
+		long version = stockVersion;
+		return version < 0 ? RETIRED : version;
+	}
+	/**
+	 * Set the stock without validation and count the change. The caller holds the lock
+	 * of the part, and calls {@link #changed()} after letting go of it.
+	 */
+	void writeStock(int instock) {
+		this.instock = instock;
+		stockVersion += stockVersion < 0 ? -1 : 1;
+	}
+	/**
+	 * Mark a part that has been removed or replaced in its inventory, so that a
+	 * reservation planned against it finds the part again.
+	 */
+	synchronized void retireStock() {
+		if (stockVersion >= 0) stockVersion = -stockVersion - 1;
+	}
+	/**
+	 * Bring back a part that has been added to an inventory, with a stock version
+	 * it has not had before, so no reservation planned earlier can be committed.
+	 */
+	synchronized void reviveStock() {
+		if (stockVersion < 0) stockVersion = -stockVersion + 1;
+	}
+	/**
+	 * Write the values of this part back to its columnar store, if it has one,
+	 * without telling anyone.
+	 */
+	void writeBack() {
+		if (store != null) {
+			store.write(this);
+		}
+	}
+	/**
+	 * Write the values of this part back to its columnar store, if it has one,
+	 * and tell the listeners. Called after every change to a value.
+	 */
+	void changed() {
+		if (store != null) {
+			store.update(this);
+		}
+		for (PartListener listener : listeners) {
+			listener.partChanged(this);
+		}
 	}
 }
@@ -0,0 +1,110 @@
+package inventory.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The values of a list of parts laid out in primitive columns, in list order.
+ * Used to move a whole catalog in and out of a {@link PartStore} or a snapshot
+ * file without creating a Part object for every part.
+ * @author Aaron Echols
+ *
+ */
+final class PartColumns {
+
+	final int count;
+	final int[] partIDs;
+	final long[] priceCents;
+	final int[] instocks;
+	final int[] mins;
+	final int[] maxes;
+	final boolean[] inhouse;
+	// the machine ID of an in house part, or the supplier number of an outsourced part
+	final int[] sources;
+	final List<String> suppliers;
+	// every name packed one after another
+	final char[] names;
+	final int[] nameStarts;
+	final int[] nameLengths;
+
+	PartColumns(int count, List<String> suppliers, char[] names) {
+		this.count = count;
+		this.suppliers = suppliers;
+		this.names = names;
+		partIDs = new int[count];
+		priceCents = new long[count];
+		instocks = new int[count];
+		mins = new int[count];
+		maxes = new int[count];
+		inhouse = new boolean[count];
+		sources = new int[count];
+		nameStarts = new int[count];
+		nameLengths = new int[count];
+	}
+
+	/**
+	 * Lay out the values of a list of in house and outsourced parts.
+	 * @param parts the parts
+	 * @return the values of the parts
+	 * @throws IllegalArgumentException if a part is not in house or outsourced
+	 */
+	static PartColumns of(List<Part> parts) throws IllegalArgumentException {
+		int nameChars = 0;
+		for (Part part : parts) {
+			nameChars += part.getName().length();
+		}
+
+		PartColumns columns = new PartColumns(parts.size(), new ArrayList<>(), new char[nameChars]);
+		Map<String, Integer> supplierNumbers = new HashMap<>();
+		int used = 0;
+		for (int i = 0; i < columns.count; i++) {
+			Part part = parts.get(i);
+			if (part instanceof Inhouse) {
+				columns.inhouse[i] = true;
+				columns.sources[i] = ((Inhouse)part).getMachineID();
+			} else if (part instanceof Outsourced) {
+				columns.sources[i] = supplierNumbers.computeIfAbsent(((Outsourced)part).getCompanyName(), companyName -> {
+					columns.suppliers.add(companyName);
+					return columns.suppliers.size() - 1;
+				});
+			} else {
+				throw new IllegalArgumentException("Only in house and outsourced parts can be laid out in columns.");
+			}
+
+			columns.partIDs[i] = part.getPartID();
+			columns.priceCents[i] = part.getPriceCents();
+			columns.instocks[i] = part.getInstock();
+			columns.mins[i] = part.getMin();
+			columns.maxes[i] = part.getMax();
+
+			String name = part.getName();
+			name.getChars(0, name.length(), columns.names, used);
+			columns.nameStarts[i] = used;
+			columns.nameLengths[i] = name.length();
+			used += name.length();
+		}
+		return columns;
+	}
+
+	/**
+	 *
+	 * @param i the position of a part
+	 * @return the name of the part
+	 */
+	String name(int i) {
+		return new String(names, nameStarts[i], nameLengths[i]);
+	}
+	/**
+	 * Create a part with the values at a position. The values are not validated again.
+	 * @param i the position of a part
+	 * @return a new part
+	 */
+	Part part(int i) {
+		if (inhouse[i]) {
+			return new Inhouse(partIDs[i], name(i), priceCents[i], instocks[i], mins[i], maxes[i], sources[i]);
+		}
+		return new Outsourced(partIDs[i], name(i), priceCents[i], instocks[i], mins[i], maxes[i], suppliers.get(sources[i]));
+	}
+}
@@ -0,0 +1,16 @@
+package inventory.model;
+
+/**
+ * Receives the changes made to the values of a part through its setters.
+ * @author Aaron Echols
+ *
+ */
+@FunctionalInterface
+public interface PartListener {
+
+	/**
+	 * Called on the thread that changed the part, after the value was changed.
+	 * @param part the part that changed
+	 */
+	void partChanged(Part part);
+}
@@ -0,0 +1,502 @@
+package inventory.model;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the values of a list of parts in primitive columns instead of Part objects.
+ * A large catalog then costs a few dozen bytes per part instead of a Part object.
+ *
+ * Part objects are only created as views when a part is actually asked for
+ * (for example by the rows of a TableView that are on screen), and the same view
+ * is handed out for as long as anything holds on to it. Changes made through the
+ * setters of a view are written back to the columns, and then handed to the change listener.
+ *
+ * Each part lives in a numbered slot, which is reused once the part is removed.
+ *
+ * Only {@link Inhouse} and {@link Outsourced} parts can be stored, and each part ID number
+ * can only be stored once. The store is safe to use from any thread.
+ * @author Aaron Echols
+ *
+ */
+final class PartStore {
+
+	private static final int MISSING = -1;
+
+	// the list order, each entry is the slot that holds the values of that part,
+	// or MISSING where a part was removed until the order is packed again
+	private int[] order = new int[16];
+	private int orderLength;
+	private int size;
+
+	// the columns, one entry per slot
+	private int[] partIDs = new int[16];
+	private long[] priceCents = new long[16];
+	private int[] instocks = new int[16];
+	private int[] mins = new int[16];
+	private int[] maxes = new int[16];
+	private boolean[] inhouse = new boolean[16];
+	// the machine ID of an in house part, or the supplier number of an outsourced part
+	private int[] sources = new int[16];
+	private int[] nameStarts = new int[16];
+	private int[] nameLengths = new int[16];
+	// where each slot is in the list order
+	private int[] positions = new int[16];
+
+	// slots that have been used, and the ones given back by removed parts
+	private int slotCount;
+	private int[] freeSlots = new int[16];
+	private int freeCount;
+	private final IntIntMap slotsByID = new IntIntMap();
+
+	// every name packed one after another, and how much of that is left over from old names
+	private char[] names = new char[256];
+	private int namesUsed;
+	private int namesUnused;
+
+	// company names are stored once and referred to by number
+	private final List<String> suppliers = new ArrayList<>();
+	private final Map<String, Integer> supplierNumbers = new HashMap<>();
+
+	// the views currently in use, by part ID number
+	private final Map<Integer, View> views = new HashMap<>();
+	private final ReferenceQueue<Part> unusedViews = new ReferenceQueue<>();
+
+	// told about every change written back from a view
+	private final PartListener changeListener;
+
+	/**
+	 * Create an empty store.
+	 * @param changeListener told about every change written back from a view, outside the lock on the store
+	 */
+	PartStore(PartListener changeListener) {
+		this.changeListener = changeListener;
+	}
+
+	/**
+	 *
+	 * @return the number of parts in the store
+	 */
+	synchronized int size() {
+		return size;
+	}
+	/**
+	 *
+	 * @return views of every part in the store, in the order they were added
+	 */
+	synchronized List<Part> snapshot() {
+		packOrder();
+		List<Part> parts = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			parts.add(storedView(order[i]));
+		}
+		return Collections.unmodifiableList(parts);
+	}
+	/**
+	 *
+	 * @return the values of every part in the store, in the order they were added
+	 */
+	synchronized PartColumns columns() {
+		packOrder();
+		int nameChars = 0;
+		for (int i = 0; i < size; i++) {
+			nameChars += nameLengths[order[i]];
+		}
+
+		PartColumns columns = new PartColumns(size, new ArrayList<>(suppliers), new char[nameChars]);
+		int used = 0;
+		for (int i = 0; i < size; i++) {
+			int slot = order[i];
+			columns.partIDs[i] = partIDs[slot];
+			columns.priceCents[i] = priceCents[slot];
+			columns.instocks[i] = instocks[slot];
+			columns.mins[i] = mins[slot];
+			columns.maxes[i] = maxes[slot];
+			columns.inhouse[i] = inhouse[slot];
+			columns.sources[i] = sources[slot];
+			System.arraycopy(names, nameStarts[slot], columns.names, used, nameLengths[slot]);
+			columns.nameStarts[i] = used;
+			columns.nameLengths[i] = nameLengths[slot];
+			used += nameLengths[slot];
+		}
+		return columns;
+	}
+	/**
+	 * Find a part by ID number.
+	 * @param partID the ID number of the part
+	 * @return a view of the part, null if no part has that ID number
+	 */
+	synchronized Part lookup(int partID) {
+		int slot = slotsByID.get(partID, MISSING);
+		return slot == MISSING ? null : storedView(slot);
+	}
+	/**
+	 * Write the values of a view back to the columns, and tell the change listener.
+	 * @param part a view handed out by this store
+	 */
+	void update(Part part) {
+		if (write(part)) {
+			changeListener.partChanged(part);
+		}
+	}
+	/**
+	 * Write the values of a view back to the columns without telling the change listener.
+	 * @param part a view handed out by this store
+	 * @return true if the values were written, false if the part has since been removed or replaced
+	 */
+	synchronized boolean write(Part part) {
+		int slot = slotsByID.get(part.getPartID(), MISSING);
+		View view = views.get(part.getPartID());
+		// ignore views of parts that have since been removed or replaced
+		if (slot == MISSING || view == null || view.get() != part) return false;
+		write(slot, part);
+		return true;
+	}
+
+	/**
+	 * Add a part to the end of the store. The part becomes the view of its own values.
+	 * @param part the part to add
+	 * @return the slot holding the part
+	 * @throws IllegalArgumentException if the part is not in house or outsourced,
+	 * or a part with the same ID number is already stored
+	 */
+	synchronized int add(Part part) throws IllegalArgumentException {
+		checkKind(part);
+		checkNewID(part.getPartID());
+
+		int slot = allocateSlot();
+		write(slot, part);
+		slotsByID.put(part.getPartID(), slot);
+		attach(part);
+
+		if (orderLength == order.length) {
+			// grow unless packing leaves at least half of the order free
+			packOrder();
+			if (size > order.length / 2) {
+				order = Arrays.copyOf(order, order.length * 2);
+			}
+		}
+		positions[slot] = orderLength;
+		order[orderLength++] = slot;
+		size++;
+		return slot;
+	}
+	/**
+	 * Add the parts laid out in columns to the end of the store, without creating
+	 * a Part object for any of them. A store that has never held a part takes over
+	 * the arrays of the columns, so they must not be used afterwards.
+	 * @param columns the values of the parts
+	 * @return the slots holding the parts, in order
+	 * @throws IllegalArgumentException if a part has the ID number of a stored part,
+	 * in which case none of the parts are added
+	 */
+	synchronized int[] load(PartColumns columns) throws IllegalArgumentException {
+		// claim the ID numbers first, giving them back if one is already taken
+		slotsByID.ensureCapacity(slotsByID.size() + columns.count);
+		for (int i = 0; i < columns.count; i++) {
+			if (slotsByID.get(columns.partIDs[i], MISSING) != MISSING) {
+				for (int j = 0; j < i; j++) {
+					slotsByID.remove(columns.partIDs[j]);
+				}
+				throw new IllegalArgumentException("A part with that ID number is already in the inventory.");
+			}
+			slotsByID.put(columns.partIDs[i], i);
+		}
+
+		if (slotCount == 0) {
+			return adopt(columns);
+		}
+
+		// the supplier numbers of the columns may differ from the ones in this store
+		int[] supplierNumbers = new int[columns.suppliers.size()];
+		for (int i = 0; i < supplierNumbers.length; i++) {
+			supplierNumbers[i] = supplierNumber(columns.suppliers.get(i));
+		}
+		if (namesUsed + columns.names.length > names.length) {
+			names = Arrays.copyOf(names, Math.max(names.length * 2, namesUsed + columns.names.length));
+		}
+		packOrder();
+		if (size + columns.count > order.length) {
+			order = Arrays.copyOf(order, Math.max(order.length * 2, size + columns.count));
+		}
+		ensureSlotCapacity(slotCount + columns.count);
+
+		int[] slots = new int[columns.count];
+		for (int i = 0; i < columns.count; i++) {
+			int slot = allocateSlot();
+			partIDs[slot] = columns.partIDs[i];
+			priceCents[slot] = columns.priceCents[i];
+			instocks[slot] = columns.instocks[i];
+			mins[slot] = columns.mins[i];
+			maxes[slot] = columns.maxes[i];
+			inhouse[slot] = columns.inhouse[i];
+			sources[slot] = columns.inhouse[i] ? columns.sources[i] : supplierNumbers[columns.sources[i]];
+
+			System.arraycopy(columns.names, columns.nameStarts[i], names, namesUsed, columns.nameLengths[i]);
+			nameStarts[slot] = namesUsed;
+			nameLengths[slot] = columns.nameLengths[i];
+			namesUsed += columns.nameLengths[i];
+
+			slotsByID.put(partIDs[slot], slot);
+			positions[slot] = orderLength;
+			order[orderLength++] = slot;
+			size++;
+			slots[i] = slot;
+		}
+		return slots;
+	}
+	/**
+	 * Load the columns into a store that has never held a part by taking over their arrays.
+	 */
+	private int[] adopt(PartColumns columns) {
+		partIDs = columns.partIDs;
+		priceCents = columns.priceCents;
+		instocks = columns.instocks;
+		mins = columns.mins;
+		maxes = columns.maxes;
+		inhouse = columns.inhouse;
+		sources = columns.sources;
+		nameStarts = columns.nameStarts;
+		nameLengths = columns.nameLengths;
+		names = columns.names;
+		namesUsed = columns.names.length;
+		for (String companyName : columns.suppliers) {
+			supplierNumber(companyName);
+		}
+		slotCount = columns.count;
+		ensureSlotCapacity(Math.max(16, slotCount));
+		positions = new int[partIDs.length];
+
+		order = new int[Math.max(16, slotCount)];
+		for (int slot = 0; slot < slotCount; slot++) {
+			slotsByID.put(partIDs[slot], slot);
+			order[slot] = slot;
+			positions[slot] = slot;
+		}
+		orderLength = slotCount;
+		size = slotCount;
+		return Arrays.copyOf(order, size);
+	}
+	/**
+	 * Remove a part from the store and give its slot back for reuse.
+	 * The part keeps its current values as a part of its own.
+	 * @param part the view of the part to remove
+	 * @return the slot that held the part, or -1 if the part is not a view in this store
+	 */
+	synchronized int remove(Part part) {
+		int slot = slotOf(part);
+		if (slot == MISSING) return MISSING;
+
+		detach(part);
+		slotsByID.remove(part.getPartID());
+		namesUnused += nameLengths[slot];
+		nameLengths[slot] = 0;
+		if (freeCount == freeSlots.length) {
+			freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+		}
+		freeSlots[freeCount++] = slot;
+
+		// the gap is left in the order until the next time it is read or fills up
+		order[positions[slot]] = MISSING;
+		size--;
+		return slot;
+	}
+	/**
+	 * Put a new part in the place of a stored part. The new part becomes the view of its slot.
+	 * @param oldPart the view of the part to replace
+	 * @param newPart the part to put in its place
+	 * @return the slot that holds the new part, or -1 if the old part is not a view in this store
+	 * @throws IllegalArgumentException if the new part is not in house or outsourced,
+	 * or it has the ID number of another stored part
+	 */
+	synchronized int replace(Part oldPart, Part newPart) throws IllegalArgumentException {
+		int slot = slotOf(oldPart);
+		if (slot == MISSING) return MISSING;
+		checkKind(newPart);
+		if (newPart.getPartID() != oldPart.getPartID()) {
+			checkNewID(newPart.getPartID());
+		}
+
+		detach(oldPart);
+		slotsByID.remove(oldPart.getPartID());
+		write(slot, newPart);
+		slotsByID.put(newPart.getPartID(), slot);
+		attach(newPart);
+		return slot;
+	}
+	/**
+	 * Only the view currently handed out for a part counts as being in the store,
+	 * so an old part that shares an ID number with a stored part is not found.
+	 */
+	private int slotOf(Part part) {
+		if (part.getStore() != this) return MISSING;
+		return slotsByID.get(part.getPartID(), MISSING);
+	}
+	private void checkKind(Part part) {
+		if (!(part instanceof Inhouse) && !(part instanceof Outsourced)) {
+			throw new IllegalArgumentException("Only in house and outsourced parts can be stored.");
+		}
+	}
+	private void checkNewID(int partID) {
+		if (slotsByID.get(partID, MISSING) != MISSING) {
+			throw new IllegalArgumentException("A part with that ID number is already in the inventory.");
+		}
+	}
+	private int allocateSlot() {
+		if (freeCount > 0) {
+			return freeSlots[--freeCount];
+		}
+		ensureSlotCapacity(slotCount + 1);
+		return slotCount++;
+	}
+	private void ensureSlotCapacity(int slots) {
+		if (slots > partIDs.length) {
+			int capacity = Math.max(partIDs.length * 2, slots);
+			partIDs = Arrays.copyOf(partIDs, capacity);
+			priceCents = Arrays.copyOf(priceCents, capacity);
+			instocks = Arrays.copyOf(instocks, capacity);
+			mins = Arrays.copyOf(mins, capacity);
+			maxes = Arrays.copyOf(maxes, capacity);
+			inhouse = Arrays.copyOf(inhouse, capacity);
+			sources = Arrays.copyOf(sources, capacity);
+			nameStarts = Arrays.copyOf(nameStarts, capacity);
+			nameLengths = Arrays.copyOf(nameLengths, capacity);
+			positions = Arrays.copyOf(positions, capacity);
+		}
+	}
+	/**
+	 * Close the gaps left in the list order by removed parts.
+	 */
+	private void packOrder() {
+		if (orderLength == size) return;
+		int packed = 0;
+		for (int i = 0; i < orderLength; i++) {
+			int slot = order[i];
+			if (slot != MISSING) {
+				positions[slot] = packed;
+				order[packed++] = slot;
+			}
+		}
+		orderLength = packed;
+	}
+	private void write(int slot, Part part) {
+		if (part instanceof Inhouse) {
+			inhouse[slot] = true;
+			sources[slot] = ((Inhouse)part).getMachineID();
+		} else {
+			inhouse[slot] = false;
+			sources[slot] = supplierNumber(((Outsourced)part).getCompanyName());
+		}
+
+		partIDs[slot] = part.getPartID();
+		priceCents[slot] = part.getPriceCents();
+		instocks[slot] = part.getInstock();
+		mins[slot] = part.getMin();
+		maxes[slot] = part.getMax();
+		writeName(slot, part.getName());
+	}
+	private void writeName(int slot, String name) {
+		if (hasName(slot, name)) return;
+
+		namesUnused += nameLengths[slot];
+		nameLengths[slot] = 0;
+		if (namesUnused > namesUsed / 2) {
+			packNames();
+		}
+		if (namesUsed + name.length() > names.length) {
+			names = Arrays.copyOf(names, Math.max(names.length * 2, namesUsed + name.length()));
+		}
+
+		name.getChars(0, name.length(), names, namesUsed);
+		nameStarts[slot] = namesUsed;
+		nameLengths[slot] = name.length();
+		namesUsed += name.length();
+	}
+	private boolean hasName(int slot, String name) {
+		if (nameLengths[slot] != name.length()) return false;
+		for (int i = 0; i < name.length(); i++) {
+			if (names[nameStarts[slot] + i] != name.charAt(i)) return false;
+		}
+		return true;
+	}
+	/**
+	 * Move the names in use together, dropping the space left by old names.
+	 */
+	private void packNames() {
+		char[] packed = new char[Math.max(256, (namesUsed - namesUnused) * 2)];
+		int used = 0;
+		// free and unused slots have no name left, so every slot can be copied
+		for (int slot = 0; slot < slotCount; slot++) {
+			System.arraycopy(names, nameStarts[slot], packed, used, nameLengths[slot]);
+			nameStarts[slot] = used;
+			used += nameLengths[slot];
+		}
+		names = packed;
+		namesUsed = used;
+		namesUnused = 0;
+	}
+	private int supplierNumber(String companyName) {
+		Integer number = supplierNumbers.get(companyName);
+		if (number == null) {
+			number = suppliers.size();
+			suppliers.add(companyName);
+			supplierNumbers.put(companyName, number);
+		}
+		return number;
+	}
+
+	/**
+	 * Get the view of the part in a slot, creating a new one if none is in use.
+	 */
+	private Part storedView(int slot) {
+		forgetUnusedViews();
+
+		View existing = views.get(partIDs[slot]);
+		Part part = existing == null ? null : existing.get();
+		if (part == null) {
+			String name = new String(names, nameStarts[slot], nameLengths[slot]);
+			if (inhouse[slot]) {
+				part = new Inhouse(partIDs[slot], name, priceCents[slot], instocks[slot], mins[slot], maxes[slot], sources[slot]);
+			} else {
+				part = new Outsourced(partIDs[slot], name, priceCents[slot], instocks[slot], mins[slot], maxes[slot], suppliers.get(sources[slot]));
+			}
+			attach(part);
+		}
+		return part;
+	}
+	private void attach(Part part) {
+		part.setStore(this);
+		views.put(part.getPartID(), new View(part, unusedViews));
+	}
+	/**
+	 * A part that leaves the store keeps its current values as a part of its own.
+	 */
+	private void detach(Part part) {
+		part.setStore(null);
+		views.remove(part.getPartID());
+	}
+	private void forgetUnusedViews() {
+		View view;
+		while ((view = (View)unusedViews.poll()) != null) {
+			views.remove(view.partID, view);
+		}
+	}
+
+	/**
+	 * A weak reference to a view, so that views nothing else holds on to can be garbage collected.
+	 */
+	private static final class View extends WeakReference<Part> {
+		private final int partID;
+
+		View(Part part, ReferenceQueue<Part> queue) {
+			super(part, queue);
+			partID = part.getPartID();
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package inventory.model;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A reverse index from the parts contained in products to the products that contain them.
+ * Each product is listened to, so parts added or removed through {@link Product#addPart(Part)}
+ * or {@link Product#removePart(int)} are picked up as they happen. Each contained part is
+ * listened to as well, so a part renamed through its setter is found by its new name.
+ * The index is safe to search from any thread.
+ * @author Aaron Echols
+ *
+ */
+final class PartUsageIndex {
+
+	private final Set<Product> products = new HashSet<>();
+	// follows the parts added to and removed from every tracked product
+	private final ProductListener partsListener = new ProductListener() {
+		@Override
+		public void partAdded(Product product, Part part, int quantity) {
+			synchronized (PartUsageIndex.this) {
+				addUse(part, product, quantity);
+			}
+		}
+		@Override
+		public void partRemoved(Product product, Part part, int quantity) {
+			synchronized (PartUsageIndex.this) {
+				removeUse(part, product, quantity);
+			}
+		}
+	};
+	// follows the names of the contained parts
+	private final PartListener nameListener = new PartListener() {
+		@Override
+		public void partChanged(Part part) {
+			synchronized (PartUsageIndex.this) {
+				if (productsByPart.containsKey(part) && !isIndexed(part)) {
+					indexNames(part.getPartID());
+				}
+			}
+		}
+	};
+	// the number of units of each part in each product
+	private final Map<Part, Map<Product, Integer>> productsByPart = new HashMap<>();
+	// every contained part with a given ID number (an updated part keeps the old ID)
+	private final Map<Integer, Set<Part>> partsByID = new HashMap<>();
+	// the names of the contained parts, keyed by part ID number
+	private final SubstringIndex partNames = new SubstringIndex();
+
+	/**
+	 * Start tracking the parts contained in a product.
+	 * @param product the product to track
+	 */
+	synchronized void addProduct(Product product) {
+		if (!products.add(product)) return;
+
+		product.addListener(partsListener);
+
+		for (Part part : product.getPartLines()) {
+			addUse(part, product, product.getPartQuantity(part.getPartID()));
+		}
+	}
+	/**
+	 * Stop tracking the parts contained in a product.
+	 * @param product the product to stop tracking
+	 */
+	synchronized void removeProduct(Product product) {
+		if (!products.remove(product)) return;
+
+		product.removeListener(partsListener);
+		for (Part part : product.getPartLines()) {
+			removeUse(part, product, product.getPartQuantity(part.getPartID()));
+		}
+	}
+	/**
+	 *
+	 * @param partID the ID number of a part
+	 * @return every tracked product that contains a part with that ID number
+	 */
+	synchronized Set<Product> productsUsing(int partID) {
+		Set<Product> productsFound = new HashSet<>();
+
+		Set<Part> parts = partsByID.get(partID);
+		if (parts != null) {
+			for (Part part : parts) {
+				productsFound.addAll(productsByPart.get(part).keySet());
+			}
+		}
+		return productsFound;
+	}
+	/**
+	 *
+	 * @param str the string to search for (case insensitive)
+	 * @return every tracked product that contains a part whose name contains the string
+	 */
+	synchronized Set<Product> productsUsingPartNamed(String str) {
+		Set<Product> productsFound = new HashSet<>();
+		String lower = str.toLowerCase();
+
+		for (int partID : partNames.search(str)) {
+			// only some of the parts sharing the ID number may have a matching name
+			for (Part part : partsByID.get(partID)) {
+				if (part.getName().toLowerCase().contains(lower)) {
+					productsFound.addAll(productsByPart.get(part).keySet());
+				}
+			}
+		}
+		return productsFound;
+	}
+
+	private void addUse(Part part, Product product, int quantity) {
+		Map<Product, Integer> counts = productsByPart.get(part);
+		if (counts == null) {
+			counts = new HashMap<>();
+			productsByPart.put(part, counts);
+			partsByID.computeIfAbsent(part.getPartID(), id -> new HashSet<>()).add(part);
+			part.addListener(nameListener);
+			indexNames(part.getPartID());
+		}
+		counts.merge(product, quantity, Integer::sum);
+	}
+	private void removeUse(Part part, Product product, int quantity) {
+		Map<Product, Integer> counts = productsByPart.get(part);
+		if (counts == null) return;
+
+		if (counts.merge(product, -quantity, Integer::sum) <= 0) {
+			counts.remove(product);
+		}
+		if (counts.isEmpty()) {
+			productsByPart.remove(part);
+			part.removeListener(nameListener);
+			Set<Part> parts = partsByID.get(part.getPartID());
+			parts.remove(part);
+			if (parts.isEmpty()) {
+				partsByID.remove(part.getPartID());
+			}
+			indexNames(part.getPartID());
+		}
+	}
+	/**
+	 * Check if the current name of a contained part is the one indexed, ignoring case.
+	 */
+	private boolean isIndexed(Part part) {
+		String[] names = partNames.fields(part.getPartID());
+		if (names == null) return false;
+		for (String name : names) {
+			if (name.equalsIgnoreCase(part.getName())) return true;
+		}
+		return false;
+	}
+	private void indexNames(int partID) {
+		Set<Part> parts = partsByID.get(partID);
+		if (parts == null) {
+			partNames.remove(partID);
+			return;
+		}
+
+		String[] names = new String[parts.size()];
+		int n = 0;
+		for (Part part : parts) {
+			names[n++] = part.getName();
+		}
+		partNames.add(partID, names);
+	}
+}
@@ -1,32 +1,77 @@
 package inventory.model;
 
+import java.lang.ref.WeakReference;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
-
-import javafx.beans.property.DoubleProperty;
-import javafx.beans.property.IntegerProperty;
-import javafx.beans.property.SimpleDoubleProperty;
-import javafx.beans.property.SimpleIntegerProperty;
-import javafx.beans.property.SimpleStringProperty;
-import javafx.beans.property.StringProperty;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
 /**
  * A finished product that contains one or more parts.
+ * The parts are kept as a bill of materials, with one line and a quantity for each part,
+ * and a product can also contain other products as assemblies any number of levels deep.
+ * The parts cost includes the parts of the assemblies, and is kept up to date as prices change.
  * @author Aaron Echols
  *
  */
 public class Product {
 	
-	private StringProperty name = new SimpleStringProperty();
-	private IntegerProperty productID = new SimpleIntegerProperty();
-	private DoubleProperty price = new SimpleDoubleProperty();
-	private IntegerProperty instock = new SimpleIntegerProperty();
-	private IntegerProperty min = new SimpleIntegerProperty();
-	private IntegerProperty max = new SimpleIntegerProperty();
-	private ObservableList<Part> parts = FXCollections.observableArrayList();
+	private String name;
+	private int productID;
+	private long priceCents;
+	private int instock;
+	private int min;
+	private int max;
+	
+	/**
+	 * The most units of parts a product can contain. The cost of this many parts
+	 * at {@link Money#MAX_CENTS} each still fits in a long.
+	 */
+	public static final int MAX_PART_UNITS = 9_000_000;
+	
+	// one line for each contained part, with the number of units on the line
+	// and the price of the line's part in cents when it was last looked at;
+	// a part is known by its ID number, so an updated part takes over the line of the part it replaced,
+	// and a removed line is filled with the last line
+	private final List<Part> parts = new ArrayList<>();
+	private final List<Part> readOnlyParts = Collections.unmodifiableList(parts);
+	private int[] lineUnits = new int[4];
+	private long[] partCents = new long[4];
+	// the line of each contained part, keyed by part ID number
+	private final IntIntMap lines = new IntIntMap();
+	private int unitCount;
+	private final PartUnits units = new PartUnits();
+	
+	// one line for each contained assembly, and the number of units on each line keyed by product ID number;
+	// the assemblies form no cycles, so a product never contains itself
+	private final List<Product> assemblies = new ArrayList<>();
+	private final List<Product> readOnlyAssemblies = Collections.unmodifiableList(assemblies);
+	private final IntIntMap assemblyQuantities = new IntIntMap();
+	
+	// the running total of the prices of the parts on this product's own lines in cents,
+	// changed by the price difference times the quantity of the line
+	private long partsCost;
+	// the cost of the assemblies, added up again when it is read after a change below marked it out of date;
+	// both costs are guarded by the product's lock, since a component can change on another thread
+	private long assemblyCost;
+	private boolean assemblyCostStale;
+	// follows price changes of the contained parts and cost changes of the contained assemblies;
+	// it only holds on to this product weakly, so the components do not keep a discarded product alive
+	private final ComponentListener componentListener = new ComponentListener(this);
 	
-	private static int nextProductID = 1;
+	// told about every change, replaced as a whole when one is added or removed
+	private volatile ProductListener[] listeners = NO_LISTENERS;
+	private static final ProductListener[] NO_LISTENERS = {};
+	
+	/**
+	 * Keeps up with the next product ID available for use. Safe to use from any thread.
+	 */
+	private static final IDAllocator productIDs = new IDAllocator();
 
 	public Product(String name, double price, List<Part> parts) throws IllegalArgumentException{
 		this(name, price, 0, 0, 0, parts);
@@ -35,12 +80,12 @@ public class Product {
 		this(name, price, 0, 0, 0, firstPart);
 	}
 	public Product(String name, double price, int instock, int min, int max, Part firstPart)  throws IllegalArgumentException{
-		this(name, price, instock, min, max, FXCollections.observableArrayList(firstPart));
+		this(name, price, instock, min, max, Collections.singletonList(firstPart));
 	}
 	public Product(String name, double price, int instock, int min, int max, List<Part> parts) throws IllegalArgumentException{
 		setProductID();
 		
-		this.parts.setAll(parts);
+		addAll(parts);
 		
 		setName(name);
 		setPrice(price);
@@ -48,69 +93,71 @@ public class Product {
 		setMin(min);
 		setInstock(instock);
 	}
+	/**
+	 * Restore a product that already has an ID number.
+	 * The values are not validated again.
+	 */
+	Product(int productID, String name, long priceCents, int instock, int min, int max, List<Part> parts) {
+		this.productID = productID;
+		this.name = name;
+		this.priceCents = priceCents;
+		this.instock = instock;
+		this.min = min;
+		this.max = max;
+		
+		addAll(parts);
+	}
 	
 	/**
 	 * 
 	 * @return the name of the product
 	 */
 	public String getName() {
-		return name.get();
+		return name;
 	}
 	/**
      * 
      * @return the iD number of the product
      */
 	public int getProductID() {
-		return productID.get();
+		return productID;
 	}
 	/**
 	 * 
 	 * @return the price in US dollars
 	 */
 	public double getPrice() {
-		return price.get();
+		return Money.toDollars(priceCents);
+	}
+	/**
+	 * 
+	 * @return the price in US cents
+	 */
+	public long getPriceCents() {
+		return priceCents;
 	}
     /**
 	 * 
 	 * @return the amount of stock in the inventory
 	 */
 	public int getInstock() {
-		return instock.get();
+		return instock;
 	}
 	/**
 	 * 
 	 * @return the minimum amount of stock to keep in the inventory
 	 */
 	public int getMin() {
-		return min.get();
+		return min;
 	}
 	/**
 	 * 
 	 * @return the maximum amount of stock to keep in the inventory
 	 */
 	public int getMax() {
-		return max.get();
-	}
-	
-	public StringProperty nameProperty() {
-		return name;
-	}
-	public IntegerProperty productIDProperty() {
-		return productID;
-	}
-	public DoubleProperty priceProperty() {
-		return price;
-	}
-	public IntegerProperty instockProperty() {
-		return instock;
-	}
-	public IntegerProperty minProperty() {
-		return min;
-	}
-	public IntegerProperty maxProperty() {
 		return max;
 	}
-
+	
 	/**
 	 * 
 	 * @param name the name of the product
@@ -119,7 +166,8 @@ public class Product {
 		if(name == null || name.isEmpty()) {
 			name = "New Product";
 		}
-		this.name.set(name);
+		this.name = name;
+		changed();
 	}
 	/**
 	 * This will set the product ID to the next available number.
@@ -127,8 +175,16 @@ public class Product {
 	 * every ProductID is unique.
 	 */
 	public void setProductID(){
-		// assign the next available number and increment counter
-		this.productID.set(nextProductID++); 
+		// assign the next available number
+		setProductIDValue(productIDs.next());
+	}
+	/**
+	 * Make sure products created from now on get an ID number greater than one
+	 * that is already in use, for example by products loaded from saved data.
+	 * @param usedProductID a product ID number that is already in use
+	 */
+	public static void seedProductID(int usedProductID) {
+		productIDs.seed(usedProductID);
 	}
 	/**
 	 * 
@@ -140,17 +196,22 @@ public class Product {
 			throw new IllegalArgumentException("Price cannot be negative.");
 		}
 		
-		double total = 0;
-		// get the total sum of the parts
-		for(Part part : parts) {
-			total += part.getPrice();
-		}
-		
-		if(price < total) {
+		setPriceCents(Money.fromDollars(price));
+	}
+	/**
+	 * 
+	 * @param priceCents the price in US cents
+	 * @throws IllegalArgumentException if amount is negative, above {@link Money#MAX_CENTS},
+	 * or less than the sum of the prices of the contained parts
+	 */
+	public void setPriceCents(long priceCents) throws IllegalArgumentException{
+		Money.checkPrice(priceCents);
+		if(priceCents < getPartsCostCents()) {
 			throw new IllegalArgumentException("Price cannot be less than the sum of its parts");
 		}
 		
-		this.price.set(price);
+		this.priceCents = priceCents;
+		changed();
 	}
 	/**
 	 * 
@@ -164,7 +225,8 @@ public class Product {
 			throw new IllegalArgumentException("Amount of stock needs to be greater than or equal to the maximum.");
 		}
 		
-		this.instock.set(instock);
+		this.instock = instock;
+		changed();
 	}
 	/**
 	 * 
@@ -175,7 +237,8 @@ public class Product {
 		if(min > getMax()) {
 			throw new IllegalArgumentException("Minimum amount of stock needs to be less than or equal to the the maximum.");
 		}
-		this.min.set(min);
+		this.min = min;
+		changed();
 	}
 	/**
 	 * 
@@ -186,15 +249,49 @@ public class Product {
 		if(max < getMin()) {
 			throw new IllegalArgumentException("Maximum amount of stock needs to be greater than or equal to the the minimum.");
 		}
-		this.max.set(max);
+		this.max = max;
+		changed();
 	}
 
     /**
 	 * add an individual part to the product
 	 * @param partToAdd the part to add to the product
+	 * @throws IllegalArgumentException if the product would contain more than {@link #MAX_PART_UNITS} parts
 	 */
-	public void addPart(Part partToAdd) {
-		this.parts.add(partToAdd);
+	public void addPart(Part partToAdd) throws IllegalArgumentException {
+		addPart(partToAdd, 1);
+	}
+	/**
+	 * add a number of units of a part to the product
+	 * @param partToAdd the part to add to the product
+	 * @param quantity the number of units to add
+	 * @throws IllegalArgumentException if the quantity is less than one, or the product would
+	 * contain more than {@link #MAX_PART_UNITS} parts
+	 */
+	public void addPart(Part partToAdd, int quantity) throws IllegalArgumentException {
+		if (quantity < 1) {
+			throw new IllegalArgumentException("Quantity must be at least one.");
+		} else if (quantity > MAX_PART_UNITS - unitCount) {
+			throw new IllegalArgumentException("A product cannot contain more than " + MAX_PART_UNITS + " parts.");
+		}
+		
+		int line = lineOf(partToAdd.getPartID());
+		if (line >= 0 && parts.get(line) != partToAdd) {
+			// an updated part takes over the line of the part it replaced
+			Part oldPart = parts.get(line);
+			int held = lineUnits[line];
+			removeUnits(line, held);
+			for (ProductListener listener : listeners) {
+				listener.partRemoved(this, oldPart, held);
+			}
+			quantity += held;
+			line = -1;
+		}
+		addUnits(partToAdd, line, quantity);
+		for (ProductListener listener : listeners) {
+			listener.partAdded(this, partToAdd, quantity);
+		}
+		costChanged();
 	}
 	/**
 	 * find a part by ID number in the product
@@ -202,43 +299,241 @@ public class Product {
 	 * @return the part if it is in the product, null if not
 	 */
 	public Part lookupPart(int partID) {
-		Part partFound = null;
+		int line = lineOf(partID);
+		return line < 0 ? null : parts.get(line);
+	}
+	/**
+	 * 
+	 * @param partID the ID number of a part
+	 * @return the number of units of the part the product contains, zero if none
+	 */
+	public int getPartQuantity(int partID) {
+		int line = lineOf(partID);
+		return line < 0 ? 0 : lineUnits[line];
+	}
+	/**
+	 * remove one unit of a part from the product
+	 * @param partID the ID number of the part to remove
+	 * @return true if the part was removed successfully, false if not
+	 */
+	public boolean removePart(int partID) {
+		return removePart(partID, 1) > 0;
+	}
+	/**
+	 * remove a number of units of a part from the product
+	 * @param partID the ID number of the part to remove
+	 * @param quantity the number of units to remove; fewer are removed if the product contains fewer
+	 * @return the number of units removed
+	 * @throws IllegalArgumentException if the quantity is less than one
+	 */
+	public int removePart(int partID, int quantity) throws IllegalArgumentException {
+		if (quantity < 1) {
+			throw new IllegalArgumentException("Quantity must be at least one.");
+		}
+		
+		int line = lineOf(partID);
+		if (line < 0) {
+			return 0;
+		}
+		
+		Part partToRemove = parts.get(line);
+		int removed = Math.min(quantity, lineUnits[line]);
+		removeUnits(line, removed);
+		for (ProductListener listener : listeners) {
+			listener.partRemoved(this, partToRemove, removed);
+		}
+		costChanged();
+		return removed;
+	}
+	/**
+	 * add a number of units of another product to this product as an assembly
+	 * @param assembly the product to add
+	 * @param quantity the number of units to add
+	 * @throws IllegalArgumentException if the quantity is less than one, if the assembly is this
+	 * product or contains it, or if the cost would be too large to keep
+	 */
+	public void addAssembly(Product assembly, int quantity) throws IllegalArgumentException {
+		if (quantity < 1) {
+			throw new IllegalArgumentException("Quantity must be at least one.");
+		} else if (assembly.contains(this)) {
+			throw new IllegalArgumentException("A product cannot contain itself.");
+		}
 		
-		for(Part part : parts) {
-			if(part.getPartID() == partID) {
-				partFound = part;
-				break;
+		int productID = assembly.getProductID();
+		int held = assemblyQuantities.get(productID, 0);
+		int line = held == 0 ? -1 : assemblyLineOf(productID);
+		try {
+			Math.addExact(getPartsCostCents(), Math.multiplyExact(assembly.getPartsCostCents(), (long)quantity + held));
+		} catch (ArithmeticException e) {
+			throw new IllegalArgumentException("The cost of the assemblies is too large.");
+		}
+		
+		if (line >= 0 && assemblies.get(line) != assembly) {
+			// an updated product takes over the line of the product it replaced
+			Product oldAssembly = assemblies.get(line);
+			removeAssemblyUnits(line, held);
+			for (ProductListener listener : listeners) {
+				listener.assemblyRemoved(this, oldAssembly, held);
 			}
+			quantity += held;
+			line = -1;
+		}
+		addAssemblyUnits(assembly, line, quantity);
+		for (ProductListener listener : listeners) {
+			listener.assemblyAdded(this, assembly, quantity);
+		}
+		assemblyCostChanged();
+	}
+	/**
+	 * remove a number of units of an assembly from the product
+	 * @param productID the ID number of the assembly to remove
+	 * @param quantity the number of units to remove; fewer are removed if the product contains fewer
+	 * @return the number of units removed
+	 * @throws IllegalArgumentException if the quantity is less than one
+	 */
+	public int removeAssembly(int productID, int quantity) throws IllegalArgumentException {
+		if (quantity < 1) {
+			throw new IllegalArgumentException("Quantity must be at least one.");
 		}
 		
-		return partFound;
+		int held = assemblyQuantities.get(productID, 0);
+		if (held == 0) {
+			return 0;
+		}
+		
+		int line = assemblyLineOf(productID);
+		Product assemblyToRemove = assemblies.get(line);
+		int removed = Math.min(quantity, held);
+		removeAssemblyUnits(line, removed);
+		for (ProductListener listener : listeners) {
+			listener.assemblyRemoved(this, assemblyToRemove, removed);
+		}
+		assemblyCostChanged();
+		return removed;
 	}
 	/**
-	 * remove a part from the product
-	 * @param partID the ID number of the part to remove
-	 * @return true if the part was removed successfully, false if not
+	 * find an assembly by ID number in the product
+	 * @param productID the ID number of the assembly
+	 * @return the assembly if it is in the product, null if not
 	 */
-	public boolean removePart(int partID) {
-		boolean result = false;
-	
-		if (parts == null || parts.isEmpty()) {
-			return result;
+	public Product lookupAssembly(int productID) {
+		if (assemblyQuantities.get(productID, 0) == 0) {
+			return null;
 		}
+		return assemblies.get(assemblyLineOf(productID));
+	}
+	/**
+	 * 
+	 * @param productID the ID number of a product
+	 * @return the number of units of the product this product contains as an assembly, zero if none
+	 */
+	public int getAssemblyQuantity(int productID) {
+		return assemblyQuantities.get(productID, 0);
+	}
+	/**
+	 * 
+	 * @return each contained assembly once, in the order they were first added, read only
+	 * (see {@link #getAssemblyQuantity(int)} for the number of units of each)
+	 */
+	public List<Product> getAssemblies() {
+		return readOnlyAssemblies;
+	}
+	/**
+	 * 
+	 * @param product a product
+	 * @return true if the product is this product or one of its assemblies at any level
+	 */
+	public boolean contains(Product product) {
+		if (product == this) return true;
 		
-		Part partToRemove = lookupPart(partID);
-
-		if(partToRemove != null) {
-			result = this.parts.remove(partToRemove);
+		// an assembly shared by several branches is only searched once
+		Map<Product, Boolean> visited = new IdentityHashMap<>();
+		List<Product> pending = new ArrayList<>(assemblies);
+		while (!pending.isEmpty()) {
+			Product assembly = pending.remove(pending.size() - 1);
+			if (assembly == product) return true;
+			if (visited.put(assembly, Boolean.TRUE) == null) {
+				pending.addAll(assembly.assemblies);
+			}
 		}
-
-		return result;
+		return false;
 	}
 	/**
 	 * 
-	 * @return the list of parts contained in this product
+	 * @return the total price of all the parts contained in this product, including the parts of
+	 * its assemblies at every level, in US dollars
 	 */
-	public ObservableList<Part> getParts() {
-		return parts;
+	public double getPartsCost() {
+		return Money.toDollars(getPartsCostCents());
+	}
+	/**
+	 * 
+	 * @return the total price of all the parts contained in this product, including the parts of
+	 * its assemblies at every level, in US cents
+	 */
+	public synchronized long getPartsCostCents() {
+		// the assemblies lock below this product, never above it, while an assembly
+		// that changes only takes its own lock to mark the products above it
+		if (assemblyCostStale) {
+			long cost = 0;
+			for (Product assembly : assemblies) {
+				cost += assembly.getPartsCostCents() * assemblyQuantities.get(assembly.getProductID(), 0);
+			}
+			assemblyCost = cost;
+			assemblyCostStale = false;
+		}
+		return partsCost + assemblyCost;
+	}
+	/**
+	 * 
+	 * @return the list of parts contained in this product, read only, with a part that is
+	 * contained more than once repeated once for each unit
+	 * (parts are added and removed with {@link #addPart(Part)} and {@link #removePart(int)})
+	 */
+	public List<Part> getParts() {
+		return units;
+	}
+	/**
+	 * 
+	 * @return each contained part once, read only; the parts are in the order they were
+	 * first added until a part is removed, whose line is then taken by the last part
+	 * (see {@link #getPartQuantity(int)} for the number of units of each)
+	 */
+	public List<Part> getPartLines() {
+		return readOnlyParts;
+	}
+	/**
+	 * 
+	 * @return the number of units of parts contained in this product
+	 */
+	public int getPartUnitCount() {
+		return unitCount;
+	}
+	
+	/**
+	 * Be told about every change made to this product from now on.
+	 * @param listener the listener to add
+	 */
+	public synchronized void addListener(ProductListener listener) {
+		ProductListener[] current = listeners;
+		ProductListener[] updated = Arrays.copyOf(current, current.length + 1);
+		updated[current.length] = listener;
+		listeners = updated;
+	}
+	/**
+	 * Stop telling a listener about changes. A listener added more than once is removed once.
+	 * @param listener the listener to remove
+	 */
+	public synchronized void removeListener(ProductListener listener) {
+		ProductListener[] current = listeners;
+		for (int i = 0; i < current.length; i++) {
+			if (current[i] == listener) {
+				ProductListener[] updated = Arrays.copyOf(current, current.length - 1);
+				System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+				listeners = updated;
+				return;
+			}
+		}
 	}
 	
 	/**
@@ -248,7 +543,303 @@ public class Product {
 	 * @param oldProduct the product to get the product ID number from
 	 */
 	public void copyProductID(Product oldProduct) {
-		this.productID.set(oldProduct.getProductID());
+		setProductIDValue(oldProduct.getProductID());
+	}
+	/**
+	 * Copy the assemblies of one product to this product, so that a new product
+	 * can replace an existing product in the inventory and keep its assemblies.
+	 * @param oldProduct the product to get the assemblies from
+	 * @throws IllegalArgumentException if an assembly contains this product
+	 */
+	public void copyAssemblies(Product oldProduct) throws IllegalArgumentException {
+		for (Product assembly : oldProduct.assemblies) {
+			addAssembly(assembly, oldProduct.getAssemblyQuantity(assembly.getProductID()));
+		}
+	}
+	/**
+	 * Put an updated product in the place of an assembly, keeping its line and quantity.
+	 * @param oldAssembly the contained assembly
+	 * @param newAssembly the product replacing it, with the same ID number
+	 */
+	void replaceAssembly(Product oldAssembly, Product newAssembly) {
+		int line = assemblyLineOf(oldAssembly.getProductID());
+		if (line < 0 || assemblies.get(line) != oldAssembly) return;
+		
+		int quantity = assemblyQuantities.get(oldAssembly.getProductID(), 0);
+		oldAssembly.removeListener(componentListener);
+		assemblies.set(line, newAssembly);
+		newAssembly.addListener(componentListener);
+		for (ProductListener listener : listeners) {
+			listener.assemblyRemoved(this, oldAssembly, quantity);
+			listener.assemblyAdded(this, newAssembly, quantity);
+		}
+		assemblyCostChanged();
+	}
+	/**
+	 * Give a new product the ID number it had somewhere else, for example in an imported file.
+	 * @param productID the ID number
+	 */
+	void assignProductID(int productID) {
+		setProductIDValue(productID);
+	}
+	private void setProductIDValue(int productID) {
+		this.productID = productID;
+	}
+	/**
+	 * Tell the listeners about a change to a value. Called after every change to a value.
+	 */
+	private void changed() {
+		for (ProductListener listener : listeners) {
+			listener.productChanged(this);
+		}
+	}
+	/**
+	 * Tell the listeners, among them the products this is an assembly of, that the parts cost changed.
+	 */
+	private void costChanged() {
+		for (ProductListener listener : listeners) {
+			listener.partsCostChanged(this);
+		}
+	}
+
+	/**
+	 * Add the parts given to a constructor, copying the lines of another product directly.
+	 */
+	private void addAll(List<Part> partsToAdd) {
+		if (partsToAdd instanceof PartUnits) {
+			Product other = ((PartUnits)partsToAdd).product();
+			for (int line = 0; line < other.parts.size(); line++) {
+				addUnits(other.parts.get(line), -1, other.lineUnits[line]);
+			}
+			return;
+		}
+		for (Part part : partsToAdd) {
+			int line = lineOf(part.getPartID());
+			if (line >= 0 && parts.get(line) != part) {
+				// an updated part takes over the line of the part it replaced
+				int held = lineUnits[line];
+				removeUnits(line, held);
+				addUnits(part, -1, held + 1);
+			} else if (unitCount < MAX_PART_UNITS) {
+				addUnits(part, line, 1);
+			} else {
+				throw new IllegalArgumentException("A product cannot contain more than " + MAX_PART_UNITS + " parts.");
+			}
+		}
+	}
+	/**
+	 * Add units to a line, or start a new line when the line is -1.
+	 */
+	private void addUnits(Part part, int line, int quantity) {
+		if (line < 0) {
+			line = parts.size();
+			if (line == partCents.length) {
+				partCents = Arrays.copyOf(partCents, line * 2);
+				lineUnits = Arrays.copyOf(lineUnits, line * 2);
+			}
+			partCents[line] = part.getPriceCents();
+			lineUnits[line] = 0;
+			parts.add(part);
+			lines.put(part.getPartID(), line);
+			part.addListener(componentListener);
+		}
+		lineUnits[line] += quantity;
+		unitCount += quantity;
+		synchronized (this) {
+			partsCost += partCents[line] * quantity;
+		}
+		units.linesChanged();
+	}
+	/**
+	 * Remove units from a line, and the whole line once it has none left.
+	 */
+	private void removeUnits(int line, int quantity) {
+		Part part = parts.get(line);
+		lineUnits[line] -= quantity;
+		unitCount -= quantity;
+		synchronized (this) {
+			partsCost -= partCents[line] * quantity;
+		}
+		units.linesChanged();
+		if (lineUnits[line] > 0) {
+			return;
+		}
+		
+		// the last line fills the gap, so no other line moves
+		lines.remove(part.getPartID());
+		int last = parts.size() - 1;
+		Part lastPart = parts.remove(last);
+		if (line < last) {
+			parts.set(line, lastPart);
+			lineUnits[line] = lineUnits[last];
+			partCents[line] = partCents[last];
+			lines.put(lastPart.getPartID(), line);
+		}
+		part.removeListener(componentListener);
+	}
+	private int lineOf(int partID) {
+		return lines.get(partID, -1);
+	}
+	/**
+	 * Bring the parts cost up to date with the price of a contained part.
+	 */
+	private void partPriceChanged(Part part) {
+		int line = lineOf(part.getPartID());
+		if (line < 0 || parts.get(line) != part) return;
+		
+		long cents = part.getPriceCents();
+		long change = (cents - partCents[line]) * lineUnits[line];
+		partCents[line] = cents;
+		if (change != 0) {
+			synchronized (this) {
+				partsCost += change;
+			}
+			costChanged();
+		}
+	}
+	/**
+	 * Add units to an assembly line, or start a new line when the line is -1.
+	 */
+	private void addAssemblyUnits(Product assembly, int line, int quantity) {
+		if (line < 0) {
+			assemblies.add(assembly);
+			assembly.addListener(componentListener);
+		}
+		int productID = assembly.getProductID();
+		assemblyQuantities.put(productID, assemblyQuantities.get(productID, 0) + quantity);
+	}
+	/**
+	 * Remove units from an assembly line, and the whole line once it has none left.
+	 */
+	private void removeAssemblyUnits(int line, int quantity) {
+		Product assembly = assemblies.get(line);
+		int left = assemblyQuantities.get(assembly.getProductID(), 0) - quantity;
+		if (left > 0) {
+			assemblyQuantities.put(assembly.getProductID(), left);
+			return;
+		}
+		
+		assemblyQuantities.remove(assembly.getProductID());
+		assemblies.remove(line);
+		assembly.removeListener(componentListener);
+	}
+	private int assemblyLineOf(int productID) {
+		for (int i = 0; i < assemblies.size(); i++) {
+			if (assemblies.get(i).getProductID() == productID) return i;
+		}
+		return -1;
+	}
+	/**
+	 * Mark the cost of the assemblies out of date, and pass that on up to the products
+	 * this is an assembly of, unless it already was.
+	 */
+	private void assemblyCostChanged() {
+		synchronized (this) {
+			if (assemblyCostStale) return;
+			assemblyCostStale = true;
+		}
+		// told outside the lock, so no lock is held while the products above take theirs
+		costChanged();
+	}
+
+	/**
+	 * The contained parts with each part repeated once for each unit, worked out from
+	 * the lines as they are read rather than stored. A unit is found by index with a
+	 * binary search of the running totals of the lines, added up again after the lines change.
+	 */
+	private final class PartUnits extends AbstractList<Part> {
+		// the number of units on each line and the lines before it, null when out of date
+		private int[] unitEnds;
+		
+		@Override
+		public Part get(int index) {
+			if (index < 0 || index >= unitCount) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + unitCount);
+			}
+			int[] ends = unitEnds;
+			if (ends == null) {
+				ends = new int[parts.size()];
+				int total = 0;
+				for (int line = 0; line < ends.length; line++) {
+					total += lineUnits[line];
+					ends[line] = total;
+				}
+				unitEnds = ends;
+			}
+			// the first line that ends after the index
+			int low = 0;
+			int high = ends.length - 1;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (ends[mid] > index) {
+					high = mid;
+				} else {
+					low = mid + 1;
+				}
+			}
+			return parts.get(low);
+		}
+		void linesChanged() {
+			unitEnds = null;
+		}
+		@Override
+		public int size() {
+			return unitCount;
+		}
+		@Override
+		public Iterator<Part> iterator() {
+			return new Iterator<Part>() {
+				private int line;
+				private int left = parts.isEmpty() ? 0 : lineUnits[0];
+				
+				@Override
+				public boolean hasNext() {
+					return left > 0;
+				}
+				@Override
+				public Part next() {
+					if (left == 0) throw new NoSuchElementException();
+					Part part = parts.get(line);
+					if (--left == 0 && ++line < parts.size()) {
+						left = lineUnits[line];
+					}
+					return part;
+				}
+			};
+		}
+		Product product() {
+			return Product.this;
+		}
+	}
+	/**
+	 * Passes the changes of a contained part or assembly on to the product, for as long as the
+	 * product is in use. Once the product is garbage collected it removes itself from the component.
+	 */
+	private static final class ComponentListener implements PartListener, ProductListener {
+		private final WeakReference<Product> product;
+		
+		ComponentListener(Product product) {
+			this.product = new WeakReference<>(product);
+		}
+		
+		@Override
+		public void partChanged(Part part) {
+			Product current = product.get();
+			if (current == null) {
+				part.removeListener(this);
+			} else {
+				current.partPriceChanged(part);
+			}
+		}
+		@Override
+		public void partsCostChanged(Product assembly) {
+			Product current = product.get();
+			if (current == null) {
+				assembly.removeListener(this);
+			} else {
+				current.assemblyCostChanged();
+			}
+		}
 	}
 
 	/*
@@ -0,0 +1,52 @@
+package inventory.model;
+
+/**
+ * Receives the changes made to a product and to the parts and assemblies it contains.
+ * Every method does nothing by default, so only the changes of interest need to be handled.
+ * The methods are called on the thread that changed the product.
+ * @author Aaron Echols
+ *
+ */
+public interface ProductListener {
+
+	/**
+	 * Called after a value of the product was changed through its setters.
+	 * @param product the product that changed
+	 */
+	default void productChanged(Product product) {}
+	/**
+	 * Called after units of a part were added to the product.
+	 * @param product the product
+	 * @param part the part that was added
+	 * @param quantity the number of units added
+	 */
+	default void partAdded(Product product, Part part, int quantity) {}
+	/**
+	 * Called after units of a part were removed from the product.
+	 * @param product the product
+	 * @param part the part that was removed
+	 * @param quantity the number of units removed
+	 */
+	default void partRemoved(Product product, Part part, int quantity) {}
+	/**
+	 * Called after units of another product were added to the product as an assembly.
+	 * @param product the product
+	 * @param assembly the assembly that was added
+	 * @param quantity the number of units added
+	 */
+	default void assemblyAdded(Product product, Product assembly, int quantity) {}
+	/**
+	 * Called after units of an assembly were removed from the product.
+	 * @param product the product
+	 * @param assembly the assembly that was removed
+	 * @param quantity the number of units removed
+	 */
+	default void assemblyRemoved(Product product, Product assembly, int quantity) {}
+	/**
+	 * Called after the parts cost of the product changed, because its parts or assemblies
+	 * changed or the price of a part changed at any level below it. A change below one of
+	 * its assemblies is only told once until {@link Product#getPartsCostCents()} is next called.
+	 * @param product the product
+	 */
+	default void partsCostChanged(Product product) {}
+}
@@ -0,0 +1,88 @@
+package inventory.model;
+
+/**
+ * The stock of a part or product that is at or below its minimum, or above its maximum,
+ * as it was when {@link StockAlerts} last saw it change.
+ * @author Aaron Echols
+ *
+ */
+public final class StockAlert {
+
+	private final boolean product;
+	private final int id;
+	private final int instock;
+	private final int min;
+	private final int max;
+
+	StockAlert(boolean product, int id, int instock, int min, int max) {
+		this.product = product;
+		this.id = id;
+		this.instock = instock;
+		this.min = min;
+		this.max = max;
+	}
+
+	/**
+	 *
+	 * @return true if the stock is of a product, false if of a part
+	 */
+	public boolean isProduct() {
+		return product;
+	}
+	/**
+	 *
+	 * @return the ID number of the part or product
+	 */
+	public int getID() {
+		return id;
+	}
+	/**
+	 *
+	 * @return the amount in stock
+	 */
+	public int getInstock() {
+		return instock;
+	}
+	/**
+	 *
+	 * @return the minimum amount of stock to keep
+	 */
+	public int getMin() {
+		return min;
+	}
+	/**
+	 *
+	 * @return the maximum amount of stock to keep
+	 */
+	public int getMax() {
+		return max;
+	}
+	/**
+	 *
+	 * @return true if the stock is at or below the minimum and should be reordered
+	 */
+	public boolean isLow() {
+		return instock <= min;
+	}
+	/**
+	 *
+	 * @return true if the stock is above the maximum
+	 */
+	public boolean isOver() {
+		return instock > max;
+	}
+	/**
+	 *
+	 * @return the units below the minimum, zero when the stock is at the minimum
+	 */
+	public long getShortage() {
+		return (long)min - instock;
+	}
+	/**
+	 *
+	 * @return the units above the maximum
+	 */
+	public long getExcess() {
+		return (long)instock - max;
+	}
+}
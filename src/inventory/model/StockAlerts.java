@@ -0,0 +1,219 @@
+package inventory.model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Follows the stock of every part and product in an inventory and keeps the ones that are
+ * low, at or below their minimum, and the ones that are over their maximum, each sorted by
+ * how far they are out. The whole catalog is only read when the alerts are created and when
+ * a catalog of parts is loaded; after that each change of a part or product moves only its
+ * own alert, and the worst alerts are read from the front of the sorted sets.
+ *
+ * Parts and products are followed by ID number. When two parts share an ID number the
+ * alert is for the one that changed last.
+ * @author Aaron Echols
+ *
+ */
+public final class StockAlerts implements AutoCloseable {
+
+	// the furthest below the minimum first, then the emptiest
+	private static final Comparator<StockAlert> BY_SHORTAGE = Comparator
+			.comparingLong(StockAlert::getShortage).reversed()
+			.thenComparingInt(StockAlert::getInstock)
+			.thenComparing(StockAlerts::compareItems);
+	// the furthest over the maximum first
+	private static final Comparator<StockAlert> BY_EXCESS = Comparator
+			.comparingLong(StockAlert::getExcess).reversed()
+			.thenComparing(StockAlerts::compareItems);
+
+	private final Inventory inventory;
+	private final TreeSet<StockAlert> low = new TreeSet<>(BY_SHORTAGE);
+	private final TreeSet<StockAlert> over = new TreeSet<>(BY_EXCESS);
+	// the alert of each part and product that has one, keyed by ID number
+	private final Map<Integer, StockAlert> partAlerts = new HashMap<>();
+	private final Map<Integer, StockAlert> productAlerts = new HashMap<>();
+
+	private final InventoryListener inventoryWatcher = new InventoryListener() {
+		@Override
+		public void partAdded(Part part) {
+			update(part);
+		}
+		@Override
+		public void partsLoaded(int[] partIDs) {
+			loadParts();
+		}
+		@Override
+		public void partRemoved(Part part) {
+			// another part may still have the same ID number
+			Part current = inventory.lookupPart(part.getPartID());
+			if (current != null) {
+				update(current);
+			} else {
+				clear(partAlerts, part.getPartID());
+			}
+		}
+		@Override
+		public void partReplaced(Part oldPart, Part newPart) {
+			if (oldPart.getPartID() != newPart.getPartID()) partRemoved(oldPart);
+			update(newPart);
+		}
+		@Override
+		public void partChanged(Part part) {
+			update(part);
+		}
+		@Override
+		public void productAdded(Product product) {
+			update(product);
+		}
+		@Override
+		public void productRemoved(Product product) {
+			Product current = inventory.lookupProduct(product.getProductID());
+			if (current != null) {
+				update(current);
+			} else {
+				clear(productAlerts, product.getProductID());
+			}
+		}
+		@Override
+		public void productReplaced(Product oldProduct, Product newProduct) {
+			if (oldProduct.getProductID() != newProduct.getProductID()) productRemoved(oldProduct);
+			update(newProduct);
+		}
+		@Override
+		public void productChanged(Product product) {
+			update(product);
+		}
+	};
+
+	/**
+	 * Start following the stock of the parts and products in an inventory.
+	 * @param inventory the inventory
+	 */
+	public StockAlerts(Inventory inventory) {
+		this.inventory = inventory;
+
+		synchronized (inventory) {
+			inventory.addListener(inventoryWatcher);
+			loadParts();
+			for (Product product : inventory.getProductSnapshot()) {
+				update(product);
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param count the most alerts to return
+	 * @return the parts and products at or below their minimum, the furthest below first
+	 * @throws IllegalArgumentException if the count is negative
+	 */
+	public synchronized List<StockAlert> getLowStock(int count) throws IllegalArgumentException {
+		return first(low, count);
+	}
+	/**
+	 *
+	 * @param count the most alerts to return
+	 * @return the parts and products above their maximum, the furthest over first
+	 * @throws IllegalArgumentException if the count is negative
+	 */
+	public synchronized List<StockAlert> getOverstock(int count) throws IllegalArgumentException {
+		return first(over, count);
+	}
+	/**
+	 *
+	 * @return the number of parts and products at or below their minimum
+	 */
+	public synchronized int getLowStockCount() {
+		return low.size();
+	}
+	/**
+	 *
+	 * @return the number of parts and products above their maximum
+	 */
+	public synchronized int getOverstockCount() {
+		return over.size();
+	}
+	/**
+	 *
+	 * @param partID the ID number of a part
+	 * @return the alert of the part, or null if its stock is within its limits
+	 */
+	public synchronized StockAlert getPartAlert(int partID) {
+		return partAlerts.get(partID);
+	}
+	/**
+	 *
+	 * @param productID the ID number of a product
+	 * @return the alert of the product, or null if its stock is within its limits
+	 */
+	public synchronized StockAlert getProductAlert(int productID) {
+		return productAlerts.get(productID);
+	}
+	/**
+	 * Stop following the inventory. The alerts are no longer kept up to date.
+	 */
+	@Override
+	public void close() {
+		inventory.removeListener(inventoryWatcher);
+	}
+
+	private static List<StockAlert> first(TreeSet<StockAlert> alerts, int count) throws IllegalArgumentException {
+		if (count < 0) {
+			throw new IllegalArgumentException("Count cannot be negative.");
+		}
+		List<StockAlert> found = new ArrayList<>(Math.min(count, alerts.size()));
+		Iterator<StockAlert> iterator = alerts.iterator();
+		while (found.size() < count && iterator.hasNext()) {
+			found.add(iterator.next());
+		}
+		return found;
+	}
+	private static int compareItems(StockAlert a, StockAlert b) {
+		if (a.isProduct() != b.isProduct()) return a.isProduct() ? 1 : -1;
+		return Integer.compare(a.getID(), b.getID());
+	}
+
+	private void loadParts() {
+		PartColumns columns = inventory.partColumns();
+		synchronized (this) {
+			for (int i = 0; i < columns.count; i++) {
+				set(partAlerts, false, columns.partIDs[i], columns.instocks[i], columns.mins[i], columns.maxes[i]);
+			}
+		}
+	}
+	private synchronized void update(Part part) {
+		set(partAlerts, false, part.getPartID(), part.getInstock(), part.getMin(), part.getMax());
+	}
+	private synchronized void update(Product product) {
+		set(productAlerts, true, product.getProductID(), product.getInstock(), product.getMin(), product.getMax());
+	}
+	private synchronized void clear(Map<Integer, StockAlert> alerts, int id) {
+		StockAlert old = alerts.remove(id);
+		if (old != null) remove(old);
+	}
+	/**
+	 * Move the alert of a part or product to match its stock.
+	 */
+	private void set(Map<Integer, StockAlert> alerts, boolean product, int id, int instock, int min, int max) {
+		StockAlert old = alerts.get(id);
+		if (old != null && old.getInstock() == instock && old.getMin() == min && old.getMax() == max) return;
+		if (old != null) remove(old);
+
+		if (instock <= min || instock > max) {
+			StockAlert alert = new StockAlert(product, id, instock, min, max);
+			alerts.put(id, alert);
+			(alert.isLow() ? low : over).add(alert);
+		} else if (old != null) {
+			alerts.remove(id);
+		}
+	}
+	private void remove(StockAlert alert) {
+		(alert.isLow() ? low : over).remove(alert);
+	}
+}
@@ -0,0 +1,135 @@
+package inventory.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An inverted trigram index over one or more text fields of each item.
+ * Finds every item with a field that contains a search string (case insensitive)
+ * by intersecting the items that contain each three letter piece of the string
+ * and then checking only those candidates, instead of every item in the inventory.
+ * Items are identified by an int key, normally their ID number.
+ * @author Aaron Echols
+ *
+ */
+final class SubstringIndex {
+
+	private static final int GRAM = 3;
+
+	private final Map<Long, IntSet> postings = new HashMap<>();
+	// the lower case fields of each item, used to confirm candidate matches
+	private final Map<Integer, String[]> fields = new HashMap<>();
+
+	/**
+	 * Add an item to the index, replacing any fields already indexed for the key.
+	 * @param key the key of the item
+	 * @param values the text fields to search on, null fields are treated as empty
+	 */
+	void add(int key, String... values) {
+		remove(key);
+
+		String[] lower = new String[values.length];
+		for (int i = 0; i < values.length; i++) {
+			lower[i] = values[i] == null ? "" : values[i].toLowerCase();
+			for (int j = 0; j + GRAM <= lower[i].length(); j++) {
+				postings.computeIfAbsent(gram(lower[i], j), g -> new IntSet()).add(key);
+			}
+		}
+		fields.put(key, lower);
+	}
+	/**
+	 * Remove an item from the index.
+	 * @param key the key of the item
+	 */
+	void remove(int key) {
+		String[] lower = fields.remove(key);
+		if (lower == null) return;
+
+		for (String field : lower) {
+			for (int j = 0; j + GRAM <= field.length(); j++) {
+				Long gram = gram(field, j);
+				IntSet keys = postings.get(gram);
+				if (keys != null && keys.remove(key) && keys.size() == 0) {
+					postings.remove(gram);
+				}
+			}
+		}
+	}
+	/**
+	 *
+	 * @param key the key of an item
+	 * @return the lower case fields indexed for the item, in the order they were added,
+	 * null if the item is not in the index
+	 */
+	String[] fields(int key) {
+		return fields.get(key);
+	}
+	/**
+	 * Find every item with at least one field that contains the search string.
+	 * @param str the string to search for (case insensitive)
+	 * @return the keys of the matching items in ascending order
+	 */
+	int[] search(String str) {
+		String lower = str.toLowerCase();
+
+		// strings shorter than a trigram match most items anyway, so check them all
+		if (lower.length() < GRAM) {
+			return sorted(matching(lower, fields.keySet().stream().mapToInt(Integer::intValue).toArray()));
+		}
+
+		// find the trigram with the fewest items to use as the candidate list
+		IntSet[] sets = new IntSet[lower.length() - GRAM + 1];
+		IntSet smallest = null;
+		for (int j = 0; j < sets.length; j++) {
+			sets[j] = postings.get(gram(lower, j));
+			if (sets[j] == null) {
+				return new int[0];
+			}
+			if (smallest == null || sets[j].size() < smallest.size()) {
+				smallest = sets[j];
+			}
+		}
+
+		// keep the candidates that have every trigram of the search string
+		int[] candidates = smallest.toArray();
+		int n = 0;
+		CANDIDATES:
+		for (int key : candidates) {
+			for (IntSet set : sets) {
+				if (set != smallest && !set.contains(key)) {
+					continue CANDIDATES;
+				}
+			}
+			candidates[n++] = key;
+		}
+
+		return sorted(matching(lower, Arrays.copyOf(candidates, n)));
+	}
+
+	/**
+	 * Confirm the candidates, since the trigrams may be spread across fields
+	 * or out of order within a field.
+	 */
+	private int[] matching(String lower, int[] candidates) {
+		int n = 0;
+		for (int key : candidates) {
+			for (String field : fields.get(key)) {
+				if (field.contains(lower)) {
+					candidates[n++] = key;
+					break;
+				}
+			}
+		}
+		return Arrays.copyOf(candidates, n);
+	}
+
+	private static int[] sorted(int[] keys) {
+		Arrays.sort(keys);
+		return keys;
+	}
+
+	private static Long gram(String str, int start) {
+		return ((long)str.charAt(start) << 32) | ((long)str.charAt(start + 1) << 16) | str.charAt(start + 2);
+	}
+}
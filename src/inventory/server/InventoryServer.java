@@ -0,0 +1,519 @@
+package inventory.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import inventory.model.Inhouse;
+import inventory.model.Inventory;
+import inventory.model.InventoryJournal;
+import inventory.model.Outsourced;
+import inventory.model.Part;
+import inventory.model.Product;
+
+/**
+ * An HTTP server that lets other systems look up and change the parts and products
+ * of an inventory, with JSON request and response bodies.
+ * <ul>
+ * <li>GET /parts/{id}, GET /products/{id}: one part or product</li>
+ * <li>GET /parts?name=..., GET /products?name=...: the first part or product with that name</li>
+ * <li>GET /parts?search=..., GET /products?search=...: every part or product matching the search</li>
+ * <li>POST /parts, POST /products: add a part or product, given as a JSON object</li>
+ * <li>PUT /parts/{id}, PUT /products/{id}: update a part or product; fields left out keep their values</li>
+ * <li>DELETE /parts/{id}, DELETE /products/{id}: remove a part or product. A product that still
+ * contains parts is only removed with ?force=true.</li>
+ * </ul>
+ * Parts and products use the fields of the JSON Lines export. A product lists its parts by ID number.
+ * Errors are answered with a status code and a JSON object holding an "error" message.
+ *
+ * Each request is handled on a virtual thread when the Java runtime has them. On older runtimes
+ * a small pool sized to the processors is used instead: requests only touch the inventory in
+ * memory, and the server accepts and reads connections without a thread per client.
+ * @author Aaron Echols
+ *
+ */
+public final class InventoryServer implements AutoCloseable {
+
+	// how many connections may wait to be accepted
+	private static final int BACKLOG = 1024;
+	// the largest request body accepted
+	private static final int MAX_BODY = 1 << 20;
+
+	private final Inventory inventory;
+	private final HttpServer server;
+	private final ExecutorService executor;
+
+	/**
+	 * Create a server. It does not answer requests until it is started.
+	 * @param inventory the inventory to serve
+	 * @param address the address and port to listen on, port 0 for any free port
+	 * @throws IOException if the address cannot be bound
+	 */
+	public InventoryServer(Inventory inventory, InetSocketAddress address) throws IOException {
+		this.inventory = inventory;
+		this.executor = newRequestExecutor();
+		this.server = HttpServer.create(address, BACKLOG);
+		server.setExecutor(executor);
+		server.createContext("/parts", exchange -> handle(exchange, this::parts));
+		server.createContext("/products", exchange -> handle(exchange, this::products));
+	}
+
+	/**
+	 * Start answering requests.
+	 */
+	public void start() {
+		server.start();
+	}
+	/**
+	 * Stop answering requests, letting the requests being handled finish.
+	 */
+	@Override
+	public void close() {
+		server.stop(1);
+		executor.shutdown();
+	}
+	/**
+	 *
+	 * @return the address the server listens on, with the port it was given
+	 */
+	public InetSocketAddress getAddress() {
+		return server.getAddress();
+	}
+
+	/**
+	 * Serve the inventory saved by the desktop application, without the user interface.
+	 * The snapshot and journal in the working directory are used, so the application
+	 * must not be running at the same time.
+	 * @param args the port to listen on, 8080 if not given
+	 * @throws IOException if the inventory cannot be opened or the port cannot be bound
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+
+		Inventory inventory = new Inventory(true);
+		InventoryJournal journal = InventoryJournal.open(Paths.get("inventory.journal"), Paths.get("inventory.snapshot"), inventory);
+		InventoryServer server = new InventoryServer(inventory, new InetSocketAddress(port));
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			server.close();
+			try {
+				journal.checkpoint();
+				journal.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}));
+		server.start();
+		System.out.println("Serving the inventory on port " + server.getAddress().getPort());
+	}
+
+	/**
+	 * A virtual thread for each request when the runtime has them, otherwise a small fixed pool.
+	 */
+	private static ExecutorService newRequestExecutor() {
+		try {
+			Method virtualThreads = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService)virtualThreads.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+			return Executors.newFixedThreadPool(threads, runnable -> {
+				Thread thread = new Thread(runnable, "inventory-http");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	// ------------------------ REQUESTS ------------------------
+
+	/**
+	 * Handles the requests for one kind of resource.
+	 */
+	@FunctionalInterface
+	private interface Resource {
+		/**
+		 * @return the status code and JSON body of the response
+		 */
+		Response handle(Request request) throws Exception;
+	}
+
+	/**
+	 * Answer a request, turning bad input into an error response.
+	 */
+	private void handle(HttpExchange exchange, Resource resource) throws IOException {
+		Response response;
+		try {
+			response = resource.handle(new Request(exchange));
+		} catch (NotFound e) {
+			response = new Response(404, Json.error(e.getMessage()));
+		} catch (IllegalArgumentException | ClassCastException e) {
+			response = new Response(400, Json.error(e.getMessage()));
+		} catch (Exception e) {
+			response = new Response(500, Json.error(e.toString()));
+		}
+
+		byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		try {
+			exchange.sendResponseHeaders(response.status, body.length == 0 ? -1 : body.length);
+			if (body.length > 0) {
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(body);
+				}
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private Response parts(Request request) throws Exception {
+		if (request.id == null) {
+			switch (request.method) {
+			case "GET":
+				String name = request.query.get("name");
+				if (name != null) {
+					return ok(partOrNotFound(inventory.lookupPart(name), name));
+				}
+				StringBuilder out = new StringBuilder();
+				Json.writeParts(out, inventory.searchForPartByString(request.query.getOrDefault("search", "")));
+				return new Response(200, out.toString());
+			case "POST":
+				Part part = newPart(request.body(), null);
+				inventory.addPart(part);
+				return new Response(201, json(part));
+			default:
+				return notAllowed();
+			}
+		}
+
+		int partID = request.id;
+		switch (request.method) {
+		case "GET":
+			return ok(partOrNotFound(inventory.lookupPart(partID), partID));
+		case "PUT":
+			Map<String, Object> values = request.body();
+			// read and replace the part together, so concurrent updates do not undo each other;
+			// a reservation does not wait for the inventory, so the part is read again if one changed its stock
+			synchronized (inventory) {
+				while (true) {
+					Part oldPart = partOrNotFound(inventory.lookupPart(partID), partID);
+					long stockVersion = oldPart.getStockVersion();
+					Part newPart = newPart(values, oldPart);
+					if (inventory.updatePart(oldPart, newPart, stockVersion)) {
+						return ok(newPart);
+					}
+				}
+			}
+		case "DELETE":
+			synchronized (inventory) {
+				inventory.removePart(partOrNotFound(inventory.lookupPart(partID), partID));
+			}
+			return new Response(204, "");
+		default:
+			return notAllowed();
+		}
+	}
+
+	private Response products(Request request) throws Exception {
+		if (request.id == null) {
+			switch (request.method) {
+			case "GET":
+				String name = request.query.get("name");
+				if (name != null) {
+					return ok(productOrNotFound(inventory.lookupProduct(name), name));
+				}
+				StringBuilder out = new StringBuilder();
+				Json.writeProducts(out, inventory.searchForProductByString(request.query.getOrDefault("search", "")));
+				return new Response(200, out.toString());
+			case "POST":
+				Map<String, Object> values = request.body();
+				Product product;
+				// the parts must still be in the inventory when the product is added
+				synchronized (inventory) {
+					product = newProduct(values, null);
+					inventory.addProduct(product);
+				}
+				return new Response(201, json(product));
+			default:
+				return notAllowed();
+			}
+		}
+
+		int productID = request.id;
+		switch (request.method) {
+		case "GET":
+			return ok(productOrNotFound(inventory.lookupProduct(productID), productID));
+		case "PUT":
+			Map<String, Object> values = request.body();
+			synchronized (inventory) {
+				Product oldProduct = productOrNotFound(inventory.lookupProduct(productID), productID);
+				Product newProduct = newProduct(values, oldProduct);
+				inventory.updateProduct(oldProduct, newProduct);
+				return ok(newProduct);
+			}
+		case "DELETE":
+			boolean force = Boolean.parseBoolean(request.query.get("force"));
+			synchronized (inventory) {
+				Product product = productOrNotFound(inventory.lookupProduct(productID), productID);
+				if (force) {
+					inventory.removeNotEmptyProduct(product);
+				} else {
+					try {
+						inventory.removeProduct(product);
+					} catch (Exception e) { // the product still contains parts
+						return new Response(409, Json.error(e.getMessage()));
+					}
+				}
+			}
+			return new Response(204, "");
+		default:
+			return notAllowed();
+		}
+	}
+
+	/**
+	 * Create a part from the values of a request.
+	 * @param values the values sent
+	 * @param oldPart the part being updated, whose values are kept where none were sent, or null
+	 */
+	private static Part newPart(Map<String, Object> values, Part oldPart) {
+		String kind = string(values, "kind", oldPart == null ? null : oldPart instanceof Inhouse ? "inhouse" : "outsourced");
+		String name = string(values, "name", oldPart == null ? null : oldPart.getName());
+		double price = number(values, "price", oldPart == null ? null : oldPart.getPrice());
+		int instock = integer(values, "instock", oldPart == null ? 0 : oldPart.getInstock());
+		int min = integer(values, "min", oldPart == null ? 0 : oldPart.getMin());
+		int max = integer(values, "max", oldPart == null ? 0 : oldPart.getMax());
+
+		if ("inhouse".equals(kind)) {
+			Integer oldMachineID = oldPart instanceof Inhouse ? ((Inhouse)oldPart).getMachineID() : null;
+			return new Inhouse(name, price, instock, min, max, integer(values, "machineID", oldMachineID));
+		} else if ("outsourced".equals(kind)) {
+			String oldCompanyName = oldPart instanceof Outsourced ? ((Outsourced)oldPart).getCompanyName() : null;
+			return new Outsourced(name, price, instock, min, max, string(values, "companyName", oldCompanyName));
+		}
+		throw new IllegalArgumentException("The kind of part must be inhouse or outsourced.");
+	}
+	/**
+	 * Create a product from the values of a request. Called while the inventory is locked.
+	 * @param values the values sent
+	 * @param oldProduct the product being updated, whose values are kept where none were sent, or null
+	 */
+	private Product newProduct(Map<String, Object> values, Product oldProduct) {
+		String name = string(values, "name", oldProduct == null ? null : oldProduct.getName());
+		double price = number(values, "price", oldProduct == null ? null : oldProduct.getPrice());
+		int instock = integer(values, "instock", oldProduct == null ? 0 : oldProduct.getInstock());
+		int min = integer(values, "min", oldProduct == null ? 0 : oldProduct.getMin());
+		int max = integer(values, "max", oldProduct == null ? 0 : oldProduct.getMax());
+
+		List<Part> parts;
+		Object partIDs = values.get("parts");
+		if (partIDs == null && oldProduct != null) {
+			parts = oldProduct.getParts();
+		} else if (partIDs instanceof List) {
+			parts = new ArrayList<>();
+			for (Object partID : (List<?>)partIDs) {
+				int id = toInt("parts", partID);
+				Part part = inventory.lookupPart(id);
+				if (part == null) {
+					throw new IllegalArgumentException("Part " + id + " is not in the inventory.");
+				}
+				parts.add(part);
+			}
+		} else {
+			throw new IllegalArgumentException("A product needs a list of part ID numbers.");
+		}
+		if (parts.isEmpty()) {
+			throw new IllegalArgumentException("A product must contain at least one part.");
+		}
+		Product product = new Product(name, price, instock, min, max, parts);
+
+		// assemblies are sent as objects of a product ID number and a quantity
+		Object assemblies = values.get("assemblies");
+		if (assemblies == null) {
+			if (oldProduct != null) product.copyAssemblies(oldProduct);
+		} else if (assemblies instanceof List) {
+			for (Object line : (List<?>)assemblies) {
+				if (!(line instanceof Map)) {
+					throw new IllegalArgumentException("An assembly needs an \"id\" and a \"quantity\".");
+				}
+				Map<?, ?> assembly = (Map<?, ?>)line;
+				int id = toInt("id", assembly.get("id"));
+				Product contained = inventory.lookupProduct(id);
+				if (contained == null) {
+					throw new IllegalArgumentException("Product " + id + " is not in the inventory.");
+				}
+				product.addAssembly(contained, toInt("quantity", assembly.get("quantity")));
+			}
+		} else {
+			throw new IllegalArgumentException("\"assemblies\" must be a list.");
+		}
+		if (product.getPartsCostCents() > product.getPriceCents()) {
+			throw new IllegalArgumentException("Price cannot be less than the sum of its parts");
+		}
+		return product;
+	}
+
+	private static String string(Map<String, Object> values, String name, String oldValue) {
+		Object value = values.containsKey(name) ? values.get(name) : oldValue;
+		if (!(value instanceof String)) {
+			throw new IllegalArgumentException("\"" + name + "\" must be a string.");
+		}
+		return (String)value;
+	}
+	private static double number(Map<String, Object> values, String name, Double oldValue) {
+		Object value = values.containsKey(name) ? values.get(name) : oldValue;
+		if (!(value instanceof Double)) {
+			throw new IllegalArgumentException("\"" + name + "\" must be a number.");
+		}
+		return (Double)value;
+	}
+	private static int integer(Map<String, Object> values, String name, Integer oldValue) {
+		if (!values.containsKey(name)) {
+			if (oldValue == null) throw new IllegalArgumentException("\"" + name + "\" must be a whole number.");
+			return oldValue;
+		}
+		return toInt(name, values.get(name));
+	}
+	private static int toInt(String name, Object value) {
+		if (!(value instanceof Double) || (Double)value != Math.rint((Double)value)
+				|| Math.abs((Double)value) > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("\"" + name + "\" must be a whole number.");
+		}
+		return ((Double)value).intValue();
+	}
+
+	private static Part partOrNotFound(Part part, Object key) throws NotFound {
+		if (part == null) throw new NotFound("No part " + key + " in the inventory.");
+		return part;
+	}
+	private static Product productOrNotFound(Product product, Object key) throws NotFound {
+		if (product == null) throw new NotFound("No product " + key + " in the inventory.");
+		return product;
+	}
+	private static Response ok(Part part) {
+		return new Response(200, json(part));
+	}
+	private static Response ok(Product product) {
+		return new Response(200, json(product));
+	}
+	private static String json(Part part) {
+		StringBuilder out = new StringBuilder();
+		Json.writePart(out, part);
+		return out.toString();
+	}
+	private static String json(Product product) {
+		StringBuilder out = new StringBuilder();
+		Json.writeProduct(out, product);
+		return out.toString();
+	}
+	private static Response notAllowed() {
+		return new Response(405, Json.error("Method not allowed."));
+	}
+
+	/**
+	 * The parts of a request the resources need.
+	 */
+	private static final class Request {
+		private final HttpExchange exchange;
+		private final String method;
+		// the ID number after the resource name, or null for the resource itself
+		private final Integer id;
+		private final Map<String, String> query;
+
+		Request(HttpExchange exchange) throws NotFound {
+			this.exchange = exchange;
+			this.method = exchange.getRequestMethod();
+
+			String context = exchange.getHttpContext().getPath();
+			String path = exchange.getRequestURI().getPath().substring(context.length());
+			if (path.isEmpty() || path.equals("/")) {
+				id = null;
+			} else {
+				try {
+					id = Integer.valueOf(path.substring(1));
+				} catch (NumberFormatException e) {
+					throw new NotFound("No such resource " + exchange.getRequestURI().getPath());
+				}
+			}
+			query = parseQuery(exchange.getRequestURI().getRawQuery());
+		}
+
+		/**
+		 * Read the body of the request as a JSON object.
+		 */
+		Map<String, Object> body() throws IOException {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			try (InputStream in = exchange.getRequestBody()) {
+				int read;
+				while ((read = in.read(buffer)) > 0) {
+					bytes.write(buffer, 0, read);
+					if (bytes.size() > MAX_BODY) {
+						throw new IllegalArgumentException("The request body is too large.");
+					}
+				}
+			}
+			return Json.parseObject(new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+		}
+
+		private static Map<String, String> parseQuery(String rawQuery) {
+			if (rawQuery == null || rawQuery.isEmpty()) return Collections.emptyMap();
+
+			Map<String, String> query = new HashMap<>();
+			for (String pair : rawQuery.split("&")) {
+				int equals = pair.indexOf('=');
+				String name = equals < 0 ? pair : pair.substring(0, equals);
+				String value = equals < 0 ? "" : pair.substring(equals + 1);
+				query.putIfAbsent(decode(name), decode(value));
+			}
+			return query;
+		}
+		private static String decode(String value) {
+			try {
+				return URLDecoder.decode(value, "UTF-8");
+			} catch (UnsupportedEncodingException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	/**
+	 * The status code and JSON body of a response.
+	 */
+	private static final class Response {
+		private final int status;
+		private final String body;
+
+		Response(int status, String body) {
+			this.status = status;
+			this.body = body;
+		}
+	}
+
+	/**
+	 * Thrown when a request names a part or product that is not in the inventory.
+	 */
+	private static final class NotFound extends Exception {
+		private static final long serialVersionUID = 1L;
+
+		NotFound(String message) {
+			super(message);
+		}
+	}
+}
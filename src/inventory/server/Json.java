@@ -0,0 +1,281 @@
+package inventory.server;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import inventory.model.Inhouse;
+import inventory.model.Money;
+import inventory.model.Outsourced;
+import inventory.model.Part;
+import inventory.model.Product;
+
+/**
+ * Writes parts and products as JSON and reads the JSON objects sent to the server.
+ * Parts and products are written with the same fields as the JSON Lines export.
+ * @author Aaron Echols
+ *
+ */
+final class Json {
+
+	private Json() {}
+
+	/**
+	 * Write a part as a JSON object.
+	 * @param out the builder to append to
+	 * @param part the part to write
+	 */
+	static void writePart(StringBuilder out, Part part) {
+		out.append(part instanceof Inhouse ? "{\"kind\":\"inhouse\"" : "{\"kind\":\"outsourced\"");
+		writeValues(out, part.getPartID(), part.getName(), part.getPriceCents(), part.getInstock(), part.getMin(), part.getMax());
+		if (part instanceof Inhouse) {
+			out.append(",\"machineID\":").append(((Inhouse)part).getMachineID());
+		} else if (part instanceof Outsourced) {
+			out.append(",\"companyName\":");
+			writeString(out, ((Outsourced)part).getCompanyName());
+		}
+		out.append('}');
+	}
+	/**
+	 * Write a product as a JSON object, listing its parts by ID number
+	 * and its assemblies by ID number and quantity.
+	 * @param out the builder to append to
+	 * @param product the product to write
+	 */
+	static void writeProduct(StringBuilder out, Product product) {
+		out.append("{\"kind\":\"product\"");
+		writeValues(out, product.getProductID(), product.getName(), product.getPriceCents(), product.getInstock(), product.getMin(), product.getMax());
+		out.append(",\"parts\":[");
+		// a part is listed once for each unit the product contains
+		int written = 0;
+		for (Part part : product.getPartLines()) {
+			for (int n = product.getPartQuantity(part.getPartID()); n > 0; n--) {
+				if (written++ > 0) out.append(',');
+				out.append(part.getPartID());
+			}
+		}
+		out.append("],\"assemblies\":[");
+		List<Product> assemblies = product.getAssemblies();
+		for (int i = 0; i < assemblies.size(); i++) {
+			int productID = assemblies.get(i).getProductID();
+			if (i > 0) out.append(',');
+			out.append("{\"id\":").append(productID);
+			out.append(",\"quantity\":").append(product.getAssemblyQuantity(productID)).append('}');
+		}
+		out.append("]}");
+	}
+	/**
+	 * Write a list of parts or products as a JSON array.
+	 * @param out the builder to append to
+	 * @param items the parts or products to write
+	 */
+	static void writeParts(StringBuilder out, List<Part> items) {
+		out.append('[');
+		for (int i = 0; i < items.size(); i++) {
+			if (i > 0) out.append(',');
+			writePart(out, items.get(i));
+		}
+		out.append(']');
+	}
+	static void writeProducts(StringBuilder out, List<Product> items) {
+		out.append('[');
+		for (int i = 0; i < items.size(); i++) {
+			if (i > 0) out.append(',');
+			writeProduct(out, items.get(i));
+		}
+		out.append(']');
+	}
+	/**
+	 * Write an error message as a JSON object.
+	 * @param message the message
+	 * @return the JSON object
+	 */
+	static String error(String message) {
+		StringBuilder out = new StringBuilder("{\"error\":");
+		writeString(out, message == null ? "" : message);
+		return out.append('}').toString();
+	}
+
+	private static void writeValues(StringBuilder out, int id, String name, long priceCents, int instock, int min, int max) {
+		out.append(",\"id\":").append(id);
+		out.append(",\"name\":");
+		writeString(out, name);
+		out.append(",\"price\":");
+		Money.appendTo(out, priceCents);
+		out.append(",\"instock\":").append(instock);
+		out.append(",\"min\":").append(min);
+		out.append(",\"max\":").append(max);
+	}
+	private static void writeString(StringBuilder out, String value) {
+		out.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				out.append('\\').append(c);
+			} else if (c < 0x20) {
+				out.append(String.format("\\u%04x", (int)c));
+			} else {
+				out.append(c);
+			}
+		}
+		out.append('"');
+	}
+
+	// ------------------------ READING ------------------------
+
+	/**
+	 * Read a JSON object. Values are returned as String, Double, Boolean, null,
+	 * List for arrays, and Map for nested objects.
+	 * @param text the JSON text
+	 * @return the names and values of the object, in order
+	 * @throws IllegalArgumentException if the text is not a single JSON object
+	 */
+	static Map<String, Object> parseObject(String text) throws IllegalArgumentException {
+		Reader reader = new Reader(text);
+		Object value = reader.value();
+		reader.skipSpace();
+		if (!(value instanceof Map) || reader.pos != text.length()) {
+			throw new IllegalArgumentException("Expected a single JSON object.");
+		}
+		@SuppressWarnings("unchecked")
+		Map<String, Object> object = (Map<String, Object>)value;
+		return object;
+	}
+
+	/**
+	 * Reads one value at a time from JSON text.
+	 */
+	private static final class Reader {
+		private final String text;
+		private int pos;
+
+		Reader(String text) {
+			this.text = text;
+		}
+
+		Object value() {
+			skipSpace();
+			if (pos >= text.length()) throw error("Unexpected end of JSON.");
+			char c = text.charAt(pos);
+			switch (c) {
+			case '{': return object();
+			case '[': return array();
+			case '"': return string();
+			case 't': return literal("true", Boolean.TRUE);
+			case 'f': return literal("false", Boolean.FALSE);
+			case 'n': return literal("null", null);
+			default:
+				if (c == '-' || (c >= '0' && c <= '9')) return number();
+				throw error("Unexpected character '" + c + "'.");
+			}
+		}
+		private Map<String, Object> object() {
+			Map<String, Object> object = new LinkedHashMap<>();
+			pos++;
+			skipSpace();
+			if (peek() == '}') {
+				pos++;
+				return object;
+			}
+			while (true) {
+				skipSpace();
+				if (peek() != '"') throw error("Expected a name.");
+				String name = string();
+				skipSpace();
+				expect(':');
+				object.put(name, value());
+				skipSpace();
+				if (peek() == ',') {
+					pos++;
+				} else {
+					expect('}');
+					return object;
+				}
+			}
+		}
+		private List<Object> array() {
+			List<Object> array = new ArrayList<>();
+			pos++;
+			skipSpace();
+			if (peek() == ']') {
+				pos++;
+				return array;
+			}
+			while (true) {
+				array.add(value());
+				skipSpace();
+				if (peek() == ',') {
+					pos++;
+				} else {
+					expect(']');
+					return array;
+				}
+			}
+		}
+		private String string() {
+			StringBuilder value = new StringBuilder();
+			pos++;
+			while (true) {
+				if (pos >= text.length()) throw error("Unterminated string.");
+				char c = text.charAt(pos++);
+				if (c == '"') return value.toString();
+				if (c != '\\') {
+					value.append(c);
+					continue;
+				}
+				if (pos >= text.length()) throw error("Unterminated string.");
+				char escape = text.charAt(pos++);
+				switch (escape) {
+				case 'b': value.append('\b'); break;
+				case 'f': value.append('\f'); break;
+				case 'n': value.append('\n'); break;
+				case 'r': value.append('\r'); break;
+				case 't': value.append('\t'); break;
+				case 'u':
+					if (pos + 4 > text.length()) throw error("Unterminated string.");
+					try {
+						value.append((char)Integer.parseInt(text.substring(pos, pos + 4), 16));
+					} catch (NumberFormatException e) {
+						throw error("Bad unicode escape.");
+					}
+					pos += 4;
+					break;
+				default: value.append(escape);
+				}
+			}
+		}
+		private Double number() {
+			int start = pos;
+			while (pos < text.length() && "+-.eE0123456789".indexOf(text.charAt(pos)) >= 0) {
+				pos++;
+			}
+			try {
+				return Double.valueOf(text.substring(start, pos));
+			} catch (NumberFormatException e) {
+				throw error("Bad number.");
+			}
+		}
+		private Object literal(String word, Object value) {
+			if (!text.startsWith(word, pos)) throw error("Unexpected value.");
+			pos += word.length();
+			return value;
+		}
+
+		void skipSpace() {
+			while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+				pos++;
+			}
+		}
+		private char peek() {
+			return pos < text.length() ? text.charAt(pos) : 0;
+		}
+		private void expect(char c) {
+			if (peek() != c) throw error("Expected '" + c + "'.");
+			pos++;
+		}
+		private IllegalArgumentException error(String message) {
+			return new IllegalArgumentException(message + " (at character " + pos + ")");
+		}
+	}
+}
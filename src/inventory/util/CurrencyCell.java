@@ -1,10 +1,9 @@
 package inventory.util;
 
-import java.text.DecimalFormat;
-import java.text.NumberFormat;
-import java.text.ParseException;
 import java.util.function.UnaryOperator;
 
+import inventory.model.Money;
+
 import javafx.scene.control.ContentDisplay;
 import javafx.scene.control.TableCell;
 import javafx.scene.control.TextField;
@@ -23,40 +22,40 @@ import javafx.util.StringConverter;
  * @see <a href="https://stackoverflow.com/users/2189127/james-d">James_D</a>
  * @see <a href="https://stackoverflow.com/questions/36087968/adding-currency-symbol-to-tableview-but-remove-on-edit-cell">Adding currency symbol to tableview...</a>
  *
+ * The amounts are in cents, see {@link Money}.
+ *
  * @param <T> The generic object contained in the table cell.
  */
-public class CurrencyCell<T> extends TableCell<T, Double> {
+public class CurrencyCell<T> extends TableCell<T, Long> {
 
     private final TextField textField;
-    private final NumberFormat currencyFormat = DecimalFormat.getCurrencyInstance();
-    private final DecimalFormat textFieldFormat = new DecimalFormat("0.00");
 
     public CurrencyCell() {
         this.textField = new TextField();
         
         // create the converter
-        StringConverter<Double> converter = new StringConverter<Double>() {
+        StringConverter<Long> converter = new StringConverter<Long>() {
 
             @Override
-            public String toString(Double dbl) {
+            public String toString(Long cents) {
             	String result = "";
-            	if (dbl != null) {
-            		result = textFieldFormat.format(dbl);
+            	if (cents != null) {
+            		result = Money.toString(cents);
             	}
                 return result;
             }
 
             @Override
-            public Double fromString(String string) {
-                Double result = new Double(0);
+            public Long fromString(String string) {
+                Long result = 0L;
             	try {
                 	if (!string.isEmpty()) {
-                		result = textFieldFormat.parse(string).doubleValue();
+                		result = Money.parse(string);
                 	}
                     return result;
-                } catch (ParseException e) {
+                } catch (IllegalArgumentException e) {
                     e.printStackTrace();
-                    return 0.0 ;
+                    return 0L ;
                 }
             }
 
@@ -69,15 +68,16 @@ public class CurrencyCell<T> extends TableCell<T, Double> {
                 return change ;
             }
             try {
-                textFieldFormat.parse(newText);
+                Money.parse(newText);
                 return change ;
-            } catch (ParseException e) {
-                return null ;
+            } catch (IllegalArgumentException e) {
+                // allow a decimal point to be typed before the cents
+                return newText.equals(".") || newText.equals("-") ? change : null ;
             }
         };
         
         // create the actual text formatter
-        TextFormatter<Double> textFormatter = new TextFormatter<Double>(converter, 0.0, filter);
+        TextFormatter<Long> textFormatter = new TextFormatter<Long>(converter, 0L, filter);
         
         textField.setTextFormatter(textFormatter);
 
@@ -95,16 +95,16 @@ public class CurrencyCell<T> extends TableCell<T, Double> {
     }
 
     @Override
-    protected void updateItem(Double item, boolean empty) {
+    protected void updateItem(Long item, boolean empty) {
         super.updateItem(item, empty);
         if (empty) {
             setText(null);
             setContentDisplay(ContentDisplay.TEXT_ONLY);
         } else if (isEditing()) {
-            textField.setText(item.toString());
+            textField.setText(Money.toString(item));
             setContentDisplay(ContentDisplay.GRAPHIC_ONLY);
         } else {
-            setText(currencyFormat.format(item));
+            setText(PriceFormatter.formatCents(item));
             setContentDisplay(ContentDisplay.TEXT_ONLY);
         }
     }
@@ -112,7 +112,7 @@ public class CurrencyCell<T> extends TableCell<T, Double> {
     @Override
     public void startEdit() {
         super.startEdit();
-        textField.setText(textFieldFormat.format(getItem()));
+        textField.setText(Money.toString(getItem()));
         setContentDisplay(ContentDisplay.GRAPHIC_ONLY);
         textField.requestFocus();
         textField.selectAll();
@@ -121,12 +121,12 @@ public class CurrencyCell<T> extends TableCell<T, Double> {
     @Override
     public void cancelEdit() {
         super.cancelEdit();
-        setText(currencyFormat.format(getItem()));
+        setText(PriceFormatter.formatCents(getItem()));
         setContentDisplay(ContentDisplay.TEXT_ONLY);
     }
 
     @Override
-    public void commitEdit(Double newValue) {
+    public void commitEdit(Long newValue) {
         super.commitEdit(newValue);
         setContentDisplay(ContentDisplay.TEXT_ONLY);
     }
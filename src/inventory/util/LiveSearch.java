@@ -0,0 +1,87 @@
+package inventory.util;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+/**
+ * Runs a search as the user types without blocking the JavaFX Application Thread.
+ * Keystrokes are debounced, the search runs on a background thread, and only the
+ * results of the most recent search are handed back on the JavaFX Application Thread.
+ * @author Aaron Echols
+ *
+ * @param <T> the type of item being searched for
+ */
+public class LiveSearch<T> {
+
+	/**
+	 * How long typing has to pause before a search is started, in milliseconds.
+	 */
+	public static final long DEBOUNCE_DELAY = 150;
+
+	// one daemon thread shared by every search field, so it never keeps the application open
+	private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "live-search");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final Function<String, ? extends List<T>> query;
+	private final Consumer<ObservableList<T>> publisher;
+
+	// the search waiting to run, and a counter to recognize results that are out of date
+	// (both only change on the JavaFX Application Thread)
+	private ScheduledFuture<?> pending;
+	private volatile long generation;
+
+	/**
+	 * Create a new live search.
+	 * @param query runs the search for a string, called on a background thread
+	 * @param publisher shows the results as an observable list, called on the JavaFX Application Thread
+	 */
+	public LiveSearch(Function<String, ? extends List<T>> query, Consumer<ObservableList<T>> publisher) {
+		this.query = query;
+		this.publisher = publisher;
+	}
+
+	/**
+	 * Start a search for a string once typing pauses, replacing any search
+	 * that has not finished yet. Must be called on the JavaFX Application Thread.
+	 * @param str the string to search for
+	 */
+	public void search(String str) {
+		cancel();
+		long current = generation;
+
+		pending = executor.schedule(() -> {
+			// skip the search entirely if a newer one was requested while waiting
+			if (current != generation) return;
+
+			ObservableList<T> results = FXCollections.observableArrayList(query.apply(str));
+			Platform.runLater(() -> {
+				if (current == generation) {
+					publisher.accept(results);
+				}
+			});
+		}, DEBOUNCE_DELAY, TimeUnit.MILLISECONDS);
+	}
+	/**
+	 * Cancel any search that has not published its results yet.
+	 * Must be called on the JavaFX Application Thread.
+	 */
+	public void cancel() {
+		if (pending != null) {
+			pending.cancel(false);
+			pending = null;
+		}
+		generation++;
+	}
+}
@@ -1,43 +1,237 @@
 package inventory.util;
 
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
 import java.text.NumberFormat;
 import java.text.ParseException;
 
+import inventory.model.Money;
+
 /**
- * A simple formatter utility to convert to and from a double and a string representing currency.
+ * A simple formatter utility to convert to and from an amount of money and a string representing currency.
+ * Amounts are exact in cents; the double methods convert dollars to cents first.
+ *
+ * The currency symbol, separators and negative form are read once from the currency format
+ * of the default locale, and amounts are then written and read by hand. Nothing is shared
+ * between calls but those constants, so the formatter can be used from any thread, and
+ * an amount can be appended to a reused builder without creating any objects.
  * @author Aaron Echols
  *
  */
 public class PriceFormatter {
 
-	private static NumberFormat format = NumberFormat.getCurrencyInstance();
-	
+	/**
+	 * Returned by {@link #tryParseCents(CharSequence)} when the text is not an amount.
+	 */
+	public static final long INVALID = Long.MIN_VALUE;
+
+	private static final String POSITIVE_PREFIX;
+	private static final String POSITIVE_SUFFIX;
+	private static final String NEGATIVE_PREFIX;
+	private static final String NEGATIVE_SUFFIX;
+	private static final char DECIMAL_SEPARATOR;
+	private static final char GROUPING_SEPARATOR;
+	// zero when the digits are not grouped
+	private static final int GROUPING_SIZE;
+	// the decimal places shown, two for dollars
+	private static final int FRACTION_DIGITS;
+	static {
+		NumberFormat format = NumberFormat.getCurrencyInstance();
+		if (format instanceof DecimalFormat) {
+			DecimalFormat decimal = (DecimalFormat)format;
+			DecimalFormatSymbols symbols = decimal.getDecimalFormatSymbols();
+			POSITIVE_PREFIX = decimal.getPositivePrefix();
+			POSITIVE_SUFFIX = decimal.getPositiveSuffix();
+			NEGATIVE_PREFIX = decimal.getNegativePrefix();
+			NEGATIVE_SUFFIX = decimal.getNegativeSuffix();
+			DECIMAL_SEPARATOR = symbols.getMonetaryDecimalSeparator();
+			GROUPING_SEPARATOR = symbols.getGroupingSeparator();
+			GROUPING_SIZE = decimal.isGroupingUsed() ? decimal.getGroupingSize() : 0;
+			FRACTION_DIGITS = Math.min(decimal.getMaximumFractionDigits(), 6);
+		} else {
+			POSITIVE_PREFIX = "$";
+			POSITIVE_SUFFIX = "";
+			NEGATIVE_PREFIX = "-$";
+			NEGATIVE_SUFFIX = "";
+			DECIMAL_SEPARATOR = '.';
+			GROUPING_SEPARATOR = ',';
+			GROUPING_SIZE = 3;
+			FRACTION_DIGITS = 2;
+		}
+	}
+
+	private static final long[] POWERS_OF_TEN = new long[19];
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+
+	// each thread writes into its own builder, so only the returned string is created
+	private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(32));
+
 	/**
 	 * Convert a double to a string representing currency
 	 * @param price a double of the currency amount
 	 * @return a string representing a currency amount
 	 */
 	public static String format(double price){
-		return format.format(price);
+		return formatCents(Money.fromDollars(price));
 	}
-	
+	/**
+	 * Convert an amount in cents to a string representing currency
+	 * @param cents the currency amount in cents
+	 * @return a string representing a currency amount
+	 */
+	public static String formatCents(long cents){
+		StringBuilder buffer = BUFFER.get();
+		buffer.setLength(0);
+		return appendCents(buffer, cents).toString();
+	}
+	/**
+	 * Append an amount in cents as currency, without creating any objects.
+	 * @param out the builder to append to
+	 * @param cents the currency amount in cents
+	 * @return the builder
+	 */
+	public static StringBuilder appendCents(StringBuilder out, long cents) {
+		// Long.MIN_VALUE has no positive counterpart, so the digits are taken from the negative value
+		long negative = cents < 0 ? cents : -cents;
+		long whole;
+		long fraction;
+		if (FRACTION_DIGITS >= 2) {
+			whole = -(negative / 100);
+			fraction = -(negative % 100);
+		} else {
+			// fewer decimal places than cents, rounded half even like NumberFormat
+			long divisor = POWERS_OF_TEN[2 - FRACTION_DIGITS];
+			long units = -(negative / divisor);
+			long remainder = -(negative % divisor) * 2;
+			if (remainder > divisor || (remainder == divisor && (units & 1) != 0)) {
+				units++;
+			}
+			whole = units / POWERS_OF_TEN[FRACTION_DIGITS];
+			fraction = units % POWERS_OF_TEN[FRACTION_DIGITS];
+		}
+
+		out.append(cents < 0 ? NEGATIVE_PREFIX : POSITIVE_PREFIX);
+		int digits = 1;
+		while (digits < POWERS_OF_TEN.length && whole >= POWERS_OF_TEN[digits]) {
+			digits++;
+		}
+		for (int i = digits - 1; i >= 0; i--) {
+			out.append((char)('0' + whole / POWERS_OF_TEN[i] % 10));
+			if (GROUPING_SIZE > 0 && i > 0 && i % GROUPING_SIZE == 0) {
+				out.append(GROUPING_SEPARATOR);
+			}
+		}
+		if (FRACTION_DIGITS > 0) {
+			out.append(DECIMAL_SEPARATOR);
+			int shown = Math.min(FRACTION_DIGITS, 2);
+			for (int i = shown - 1; i >= 0; i--) {
+				out.append((char)('0' + fraction / POWERS_OF_TEN[i] % 10));
+			}
+			for (int i = shown; i < FRACTION_DIGITS; i++) {
+				out.append('0');
+			}
+		}
+		return out.append(cents < 0 ? NEGATIVE_SUFFIX : POSITIVE_SUFFIX);
+	}
+
 	/**
 	 * Convert a string representing currency to a double
 	 * @param priceString a string representing a currency amount
 	 * @return a double of the currency amount
-	 * @throws ParseException if the beginning of the specified string cannot be parsed
+	 * @throws ParseException if the string is not a currency amount
 	 */
 	public static double parse(String priceString) throws ParseException{
+		return Money.toDollars(parseCents(priceString));
+	}
+	/**
+	 * Convert a string representing currency to an amount in cents, rounded to the nearest cent
+	 * @param priceString a string representing a currency amount
+	 * @return the currency amount in cents
+	 * @throws ParseException if the string is not a currency amount
+	 */
+	public static long parseCents(String priceString) throws ParseException{
 		if(priceString == null || priceString.isEmpty()) {
 			throw new IllegalArgumentException("String was empty or missing.");
 		}
-		Number number = format.parse(priceString);
-		if(number instanceof Long) {
-			//return Double.longBitsToDouble((long)number);
-			return (double)(long)number;
+		long cents = tryParseCents(priceString);
+		if (cents == INVALID) {
+			throw new ParseException("\"" + priceString + "\" is not a valid amount.", 0);
+		}
+		return cents;
+	}
+	/**
+	 * Convert a string representing currency to an amount in cents, rounded to the nearest cent,
+	 * with halves rounded away from zero. The currency symbol may be left out, and a minus sign
+	 * may be used in place of the negative form of the locale.
+	 * @param text a string representing a currency amount
+	 * @return the currency amount in cents, or {@link #INVALID} if the text is not an amount
+	 */
+	public static long tryParseCents(CharSequence text) {
+		if (text == null) return INVALID;
+		int start = skipSpace(text, 0, 1);
+		int end = skipSpace(text, text.length(), -1);
+
+		boolean negative = false;
+		if (hasAffixes(text, start, end, NEGATIVE_PREFIX, NEGATIVE_SUFFIX)
+				&& !(NEGATIVE_PREFIX.equals(POSITIVE_PREFIX) && NEGATIVE_SUFFIX.equals(POSITIVE_SUFFIX))) {
+			negative = true;
+			start += NEGATIVE_PREFIX.length();
+			end -= NEGATIVE_SUFFIX.length();
+		} else {
+			if (start < end && text.charAt(start) == '-') {
+				negative = true;
+				start = skipSpace(text, start + 1, 1);
+			}
+			if (startsWith(text, start, end, POSITIVE_PREFIX)) {
+				start += POSITIVE_PREFIX.length();
+			}
+			if (endsWith(text, start, end, POSITIVE_SUFFIX)) {
+				end -= POSITIVE_SUFFIX.length();
+			}
+		}
+		start = skipSpace(text, start, 1);
+		end = Math.max(skipSpace(text, end, -1), start);
+
+		long cents = Money.parseDigits(text, start, end, DECIMAL_SEPARATOR, GROUPING_SEPARATOR);
+		if (cents == Money.NOT_AN_AMOUNT || cents == Money.TOO_LARGE) return INVALID;
+		return negative ? -cents : cents;
+	}
+
+	private static boolean hasAffixes(CharSequence text, int start, int end, String prefix, String suffix) {
+		return end - start >= prefix.length() + suffix.length()
+				&& startsWith(text, start, end, prefix) && endsWith(text, start, end, suffix);
+	}
+	private static boolean startsWith(CharSequence text, int start, int end, String prefix) {
+		if (end - start < prefix.length()) return false;
+		for (int i = 0; i < prefix.length(); i++) {
+			if (text.charAt(start + i) != prefix.charAt(i)) return false;
+		}
+		return true;
+	}
+	private static boolean endsWith(CharSequence text, int start, int end, String suffix) {
+		if (end - start < suffix.length()) return false;
+		for (int i = 0; i < suffix.length(); i++) {
+			if (text.charAt(end - suffix.length() + i) != suffix.charAt(i)) return false;
+		}
+		return true;
+	}
+	/**
+	 * Skip spaces, forward from a position when step is 1 or backward from an end when step is -1.
+	 */
+	private static int skipSpace(CharSequence text, int position, int step) {
+		if (step > 0) {
+			while (position < text.length() && isSpace(text.charAt(position))) position++;
 		} else {
-			return (double)number;
+			while (position > 0 && isSpace(text.charAt(position - 1))) position--;
 		}
-		
+		return position;
+	}
+	private static boolean isSpace(char c) {
+		return Character.isWhitespace(c) || Character.isSpaceChar(c);
 	}
 }
@@ -1,5 +1,6 @@
 package inventory.view;
 
+import java.util.List;
 import java.util.Optional;
 
 import inventory.InventoryApplication;
@@ -7,8 +8,10 @@ import inventory.model.Inventory;
 import inventory.model.Part;
 import inventory.model.Product;
 import inventory.util.CurrencyCell;
+import inventory.util.LiveSearch;
 import javafx.application.Platform;
-import javafx.collections.ObservableList;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
@@ -21,8 +24,12 @@ import javafx.scene.control.TextField;
 public class MainScreenController {
 
 	private InventoryApplication mainApp;
+	private ObservableInventory observableInventory;
 	private Inventory inventory;
 	
+	private LiveSearch<Part> livePartSearch;
+	private LiveSearch<Product> liveProductSearch;
+	
 	@FXML
 	private TableView<Part> partTable;
 	@FXML
@@ -32,7 +39,7 @@ public class MainScreenController {
 	@FXML
 	private TableColumn<Part, Integer> partQTYColumn;
 	@FXML
-	private TableColumn<Part, Double> partPriceColumn;
+	private TableColumn<Part, Long> partPriceColumn;
 	
 	@FXML
 	private TableView<Product> productTable;
@@ -43,7 +50,7 @@ public class MainScreenController {
 	@FXML
 	private TableColumn<Product, Integer> productQTYColumn;
 	@FXML
-	private TableColumn<Product, Double> productPriceColumn;
+	private TableColumn<Product, Long> productPriceColumn;
 	
 	@FXML
 	private Button modifyPartButton;
@@ -70,17 +77,17 @@ public class MainScreenController {
 	private void initialize() {
 		
 		// Initialize the Part Table Columns
-		partIDColumn.setCellValueFactory(cell -> cell.getValue().partIDProperty().asObject());
-		partNameColumn.setCellValueFactory(cell -> cell.getValue().nameProperty());
-		partQTYColumn.setCellValueFactory(cell -> cell.getValue().instockProperty().asObject());
-		partPriceColumn.setCellValueFactory(cell -> cell.getValue().priceProperty().asObject());
+		partIDColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getPartID()));
+		partNameColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getName()));
+		partQTYColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getInstock()));
+		partPriceColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getPriceCents()));
 		partPriceColumn.setCellFactory(param -> new CurrencyCell<Part>());
 
 		// Initialize the Product Table Columns
-		productIDColumn.setCellValueFactory(cell -> cell.getValue().productIDProperty().asObject());
-		productNameColumn.setCellValueFactory(cell -> cell.getValue().nameProperty());
-		productQTYColumn.setCellValueFactory(cell -> cell.getValue().instockProperty().asObject());
-		productPriceColumn.setCellValueFactory(cell -> cell.getValue().priceProperty().asObject());
+		productIDColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getProductID()));
+		productNameColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getName()));
+		productQTYColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getInstock()));
+		productPriceColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getPriceCents()));
 		productPriceColumn.setCellFactory(param -> new CurrencyCell<Product>());
 		
 		// disable the buttons that cannot operate on zero selections
@@ -93,17 +100,27 @@ public class MainScreenController {
 		productTable.getSelectionModel().selectedItemProperty().addListener((obs, oldSel, newSel) -> 
 				changeButtonState(productTable, newSel == null));
 		
-		// add the listeners to the search fields so that if it is empty, reset view to all parts/products
-		// optionally, the search button can be eliminated by un-commenting the "else" blocks
+		// search as the user types, off the JavaFX Application Thread
+		livePartSearch = new LiveSearch<>(text -> inventory.searchForPartByString(text), partTable::setItems);
+		liveProductSearch = new LiveSearch<>(text -> inventory.searchForProductByString(text), productTable::setItems);
+		
+		// add the listeners to the search fields so that if it is empty, reset view to all parts/products,
+		// otherwise start a live search
 		searchPartField.textProperty().addListener((obs, oldText, newText) -> {
 			if (newText == null || newText.isEmpty()) {
-				partTable.setItems(inventory.getPartList());
-			}//else { partTable.setItems(inventory.searchForPartByString(newText)); }
+				livePartSearch.cancel();
+				partTable.setItems(observableInventory.getPartList());
+			} else {
+				livePartSearch.search(newText);
+			}
 		});
 		searchProductField.textProperty().addListener((obs, oldText, newText) -> {
 			if (newText == null || newText.isEmpty()) {
-				productTable.setItems(inventory.getProductList());
-			}//else { productTable.setItems(inventory.searchForProductByString(newText)); }
+				liveProductSearch.cancel();
+				productTable.setItems(observableInventory.getProductList());
+			} else {
+				liveProductSearch.search(newText);
+			}
 		});
 	}
 	
@@ -113,10 +130,11 @@ public class MainScreenController {
 	 */
 	public void setMainScreen(InventoryApplication app) {
 		mainApp = app;
-		inventory = app.getInventory();
+		observableInventory = app.getObservableInventory();
+		inventory = observableInventory.getInventory();
 		
-		partTable.setItems(inventory.getPartList());
-		productTable.setItems(inventory.getProductList());
+		partTable.setItems(observableInventory.getPartList());
+		productTable.setItems(observableInventory.getProductList());
 	}
 	
 	/**
@@ -177,11 +195,11 @@ public class MainScreenController {
 	private void handleSearchPart() {
 		String searchText = searchPartField.getText();
 		if(searchText == null || searchText.isEmpty()) {
-			partTable.setItems(inventory.getPartList());
+			partTable.setItems(observableInventory.getPartList());
 		}
 		
-		ObservableList<Part> partsFound = inventory.searchForPartByString(searchText);
-		partTable.setItems(partsFound);
+		List<Part> partsFound = inventory.searchForPartByString(searchText);
+		partTable.setItems(FXCollections.observableArrayList(partsFound));
 	}
 	/**
 	 * Delete a part from the inventory with confirmation dialog.
@@ -228,11 +246,11 @@ public class MainScreenController {
 	private void handleSearchProduct() {
 		String searchText = searchProductField.getText();
 		if(searchText == null || searchText.isEmpty()) {
-			productTable.setItems(inventory.getProductList());
+			productTable.setItems(observableInventory.getProductList());
 		}
 		
-		ObservableList<Product> productsFound = inventory.searchForProductByString(searchText);
-		productTable.setItems(productsFound);
+		List<Product> productsFound = inventory.searchForProductByString(searchText);
+		productTable.setItems(FXCollections.observableArrayList(productsFound));
 	}
 	/**
 	 * Delete a product from the inventory with confirmation dialog.
@@ -0,0 +1,228 @@
+package inventory.view;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import inventory.model.Inventory;
+import inventory.model.InventoryListener;
+import inventory.model.Part;
+import inventory.model.Product;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+/**
+ * Shows an {@link Inventory} to JavaFX: observable lists of its parts and products
+ * for the TableViews of the main screen and the dialogs.
+ *
+ * The inventory reports its changes on whatever thread made them. They are queued and then
+ * applied to the lists through the executor, normally on the JavaFX Application Thread,
+ * with every queued change applied in one go so each list fires a single change event
+ * for all of them. A part or product whose values are changed in place is shown again.
+ * @author Aaron Echols
+ *
+ */
+public final class ObservableInventory implements InventoryListener {
+
+	private final Inventory inventory;
+	private final Executor executor;
+
+	// the lists, only changed by the executor, and their read-only views;
+	// a columnar inventory is shown through a list of ID numbers instead of parts
+	private final ViewList<Part> partList;
+	private final PartIDList partIDList;
+	private final ViewList<Product> productList = new ViewList<>();
+	private final ObservableList<Part> readOnlyPartList;
+	private final ObservableList<Product> readOnlyProductList = FXCollections.unmodifiableObservableList(productList);
+
+	// changes waiting to be applied to the lists
+	private final Queue<Runnable> changes = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean updateScheduled = new AtomicBoolean();
+	// changes made during a batch, queued together when it finishes
+	// (only used while the inventory is locked)
+	private List<Runnable> batchChanges;
+	// the parts and products changed in place since the lists were last updated
+	// (only used by the executor)
+	private final Set<Part> changedParts = Collections.newSetFromMap(new IdentityHashMap<>());
+	private final Set<Product> changedProducts = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	/**
+	 * Start showing an inventory. The lists start out with the parts and products
+	 * already in the inventory.
+	 * @param inventory the inventory to show
+	 * @param executor applies the changes to the lists, for example on the JavaFX Application Thread
+	 */
+	public ObservableInventory(Inventory inventory, Executor executor) {
+		this.inventory = inventory;
+		this.executor = executor;
+
+		synchronized (inventory) {
+			if (inventory.isColumnar()) {
+				partList = null;
+				partIDList = new PartIDList(inventory);
+				readOnlyPartList = FXCollections.unmodifiableObservableList(partIDList);
+
+				List<Part> parts = inventory.getPartSnapshot();
+				int[] partIDs = new int[parts.size()];
+				for (int i = 0; i < partIDs.length; i++) {
+					partIDs[i] = parts.get(i).getPartID();
+				}
+				partIDList.added(partIDs);
+			} else {
+				partList = new ViewList<>();
+				partIDList = null;
+				readOnlyPartList = FXCollections.unmodifiableObservableList(partList);
+				partList.addAll(inventory.getPartSnapshot());
+			}
+			productList.addAll(inventory.getProductSnapshot());
+
+			inventory.addListener(this);
+		}
+	}
+
+	/**
+	 *
+	 * @return the inventory being shown
+	 */
+	public Inventory getInventory() {
+		return inventory;
+	}
+	/**
+	 *
+	 * @return a list of all parts currently in the inventory. The list is read only and
+	 * is changed by the executor, so it should only be used on that thread.
+	 */
+	public ObservableList<Part> getPartList() {
+		return readOnlyPartList;
+	}
+	/**
+	 *
+	 * @return a list of all products currently in the inventory. The list is read only and
+	 * is changed by the executor, so it should only be used on that thread.
+	 */
+	public ObservableList<Product> getProductList() {
+		return readOnlyProductList;
+	}
+
+	// ------------------------ INVENTORY CHANGES ------------------------
+
+	@Override
+	public void partAdded(Part part) {
+		if (partIDList != null) {
+			publish(() -> partIDList.added(part.getPartID()));
+		} else {
+			publish(() -> partList.add(part));
+		}
+	}
+	@Override
+	public void partsLoaded(int[] partIDs) {
+		publish(() -> partIDList.added(partIDs));
+	}
+	@Override
+	public void partRemoved(Part part) {
+		if (partIDList != null) {
+			partIDList.removing(part);
+			publish(() -> partIDList.removed(part));
+		} else {
+			publish(() -> partList.remove(part));
+		}
+	}
+	@Override
+	public void partReplaced(Part oldPart, Part newPart) {
+		if (partIDList != null) {
+			publish(() -> partIDList.replaced(oldPart, newPart));
+		} else {
+			publish(() -> partList.set(partList.indexOf(oldPart), newPart));
+		}
+	}
+	@Override
+	public void partChanged(Part part) {
+		queue(() -> changedParts.add(part));
+	}
+	@Override
+	public void productAdded(Product product) {
+		publish(() -> productList.add(product));
+	}
+	@Override
+	public void productRemoved(Product product) {
+		publish(() -> productList.remove(product));
+	}
+	@Override
+	public void productReplaced(Product oldProduct, Product newProduct) {
+		publish(() -> productList.set(productList.indexOf(oldProduct), newProduct));
+	}
+	@Override
+	public void productChanged(Product product) {
+		queue(() -> changedProducts.add(product));
+	}
+	@Override
+	public void batchStarted() {
+		batchChanges = new ArrayList<>();
+	}
+	@Override
+	public void batchFinished() {
+		List<Runnable> batch = batchChanges;
+		batchChanges = null;
+		if (!batch.isEmpty()) {
+			queue(() -> batch.forEach(Runnable::run));
+		}
+	}
+
+	/**
+	 * Queue a change to the lists, or hold on to it until the current batch finishes.
+	 * Called while the inventory is locked, so the changes are queued in the order they were made.
+	 */
+	private void publish(Runnable change) {
+		if (batchChanges != null) {
+			batchChanges.add(change);
+		} else {
+			queue(change);
+		}
+	}
+	private void queue(Runnable change) {
+		changes.add(change);
+		if (updateScheduled.compareAndSet(false, true)) {
+			executor.execute(this::applyChanges);
+		}
+	}
+	/**
+	 * Apply every queued change to the lists in one go,
+	 * so each list fires a single change event for all of them.
+	 */
+	private void applyChanges() {
+		updateScheduled.set(false);
+		productList.batch(() -> {
+			if (partIDList != null) {
+				partIDList.batch(this::runChanges);
+			} else {
+				partList.batch(this::runChanges);
+			}
+		});
+	}
+	private void runChanges() {
+		Runnable change;
+		while ((change = changes.poll()) != null) {
+			change.run();
+		}
+
+		// show the parts and products changed in place again
+		if (!changedParts.isEmpty()) {
+			if (partIDList != null) {
+				partIDList.refresh(changedParts);
+			} else {
+				partList.refresh(changedParts);
+			}
+			changedParts.clear();
+		}
+		if (!changedProducts.isEmpty()) {
+			productList.refresh(changedProducts);
+			changedProducts.clear();
+		}
+	}
+}
@@ -25,6 +25,8 @@ public class PartDialogController {
 	private boolean isNewPart;
 	private Inventory inventory;
 	private Part part;
+	// the stock version of the part when its values were shown
+	private long stockVersion;
 
 	@FXML
 	private Label titleLabel;
@@ -104,6 +106,7 @@ public class PartDialogController {
 	 * @param part the part being modified
 	 */
 	public void setPartInfo(Part part) {
+		stockVersion = part.getStockVersion();
 		if (part instanceof Inhouse) {
 			inhouseRadio.setSelected(true);
 			sourceField.setText(Integer.toString(((Inhouse)part).getMachineID()));
@@ -199,8 +202,18 @@ public class PartDialogController {
 				if (searchPart == null || existingPartFound() == ButtonType.YES) {
 					inventory.addPart(editPart); // add the part to the inventory
 				}
-			} else { // an existing part is being modified
-				inventory.updatePart(part, editPart);
+			} else if (!inventory.updatePart(part, editPart, stockVersion)) { // an existing part is being modified
+				// a reservation changed the stock while the dialog was open
+				Part current = inventory.lookupPart(part.getPartID());
+				if (current != null) {
+					part = current;
+					stockVersion = current.getStockVersion();
+					instockField.setText(Integer.toString(current.getInstock()));
+				}
+				alert.setContentText("The stock of this part changed while it was being modified. \n"
+						+ "The current amount is shown, please check it and save again.");
+				alert.showAndWait();
+				return;
 			}
 		} catch (NumberFormatException e) {
 			alert.setContentText("There was an invalid number in one of the fields. \n"
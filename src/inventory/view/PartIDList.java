@@ -0,0 +1,171 @@
+package inventory.view;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import inventory.model.Inventory;
+import inventory.model.Part;
+import javafx.collections.ObservableListBase;
+
+/**
+ * An observable list of the parts in a columnar inventory, for showing it in a TableView.
+ * The list only holds the ID number of each part and asks the inventory for a view
+ * when a row is needed, so a large catalog does not need a Part object for every row.
+ *
+ * The list follows the inventory through the changes handed to it, so it must only be
+ * used on the thread those changes are applied on (normally the JavaFX Application Thread).
+ * @author Aaron Echols
+ *
+ */
+final class PartIDList extends ObservableListBase<Part> {
+
+	private final Inventory inventory;
+	private int[] partIDs = new int[16];
+	private int size;
+	// the index of each ID number, kept up to date as parts are added to the end or replaced,
+	// and built again after a removal moves the parts after it
+	private final Map<Integer, Integer> indexes = new HashMap<>();
+	private boolean indexesStale;
+	// parts already removed from the inventory that are shown until the list catches up
+	private final Map<Integer, Part> removedParts = new ConcurrentHashMap<>();
+
+	PartIDList(Inventory inventory) {
+		this.inventory = inventory;
+	}
+
+	@Override
+	public Part get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		int partID = partIDs[index];
+		Part part = inventory.lookupPart(partID);
+		if (part == null) {
+			// a part being removed right now is only recorded once the inventory is unlocked
+			synchronized (inventory) {
+				part = removedParts.get(partID);
+			}
+		}
+		return part;
+	}
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Make a number of changes to the list, reported to its listeners as one change.
+	 * @param changes makes the changes to the list
+	 */
+	void batch(Runnable changes) {
+		beginChange();
+		try {
+			changes.run();
+		} finally {
+			endChange();
+		}
+	}
+	/**
+	 * Show a number of parts that were added to the end of the inventory.
+	 * @param newPartIDs the ID numbers of the parts, in order
+	 */
+	void added(int... newPartIDs) {
+		if (size + newPartIDs.length > partIDs.length) {
+			partIDs = Arrays.copyOf(partIDs, Math.max(partIDs.length * 2, size + newPartIDs.length));
+		}
+		System.arraycopy(newPartIDs, 0, partIDs, size, newPartIDs.length);
+		if (!indexesStale) {
+			for (int i = 0; i < newPartIDs.length; i++) {
+				indexes.put(newPartIDs[i], size + i);
+			}
+		}
+		size += newPartIDs.length;
+
+		beginChange();
+		nextAdd(size - newPartIDs.length, size);
+		endChange();
+	}
+	/**
+	 * Keep showing a part that was just removed from the inventory until {@link #removed(Part)}
+	 * is applied. Called on the thread that removed the part.
+	 * @param part the part that was removed
+	 */
+	void removing(Part part) {
+		removedParts.put(part.getPartID(), part);
+	}
+	/**
+	 * Stop showing a part that was removed from the inventory.
+	 * @param part the part that was removed
+	 */
+	void removed(Part part) {
+		int index = indexOf(part.getPartID());
+		System.arraycopy(partIDs, index + 1, partIDs, index, size - index - 1);
+		size--;
+		indexesStale = true;
+		removedParts.remove(part.getPartID(), part);
+
+		beginChange();
+		nextRemove(index, part);
+		endChange();
+	}
+	/**
+	 * Show the part that replaced another part.
+	 * @param oldPart the part that was replaced
+	 * @param newPart the part that took its place
+	 */
+	void replaced(Part oldPart, Part newPart) {
+		int index = indexOf(oldPart.getPartID());
+		partIDs[index] = newPart.getPartID();
+		if (!indexesStale) {
+			indexes.remove(oldPart.getPartID());
+			indexes.put(newPart.getPartID(), index);
+		}
+
+		beginChange();
+		nextSet(index, oldPart);
+		endChange();
+	}
+	/**
+	 * Show the parts that changed in place again, by reporting each of them as replaced by itself.
+	 * @param changed the parts that changed
+	 */
+	void refresh(Set<Part> changed) {
+		if (indexesStale) rebuildIndexes();
+
+		// only the changed parts are looked at, in list order
+		int[] found = new int[changed.size()];
+		int count = 0;
+		for (Part part : changed) {
+			Integer index = indexes.get(part.getPartID());
+			if (index != null) found[count++] = index;
+		}
+		Arrays.sort(found, 0, count);
+
+		beginChange();
+		for (int i = 0; i < count; i++) {
+			// two parts that changed can share an ID number
+			if (i > 0 && found[i] == found[i - 1]) continue;
+			nextSet(found[i], get(found[i]));
+		}
+		endChange();
+	}
+
+	private int indexOf(int partID) {
+		if (indexesStale) rebuildIndexes();
+		Integer index = indexes.get(partID);
+		if (index == null) {
+			throw new IllegalStateException("Part " + partID + " is not in the list.");
+		}
+		return index;
+	}
+	private void rebuildIndexes() {
+		indexes.clear();
+		for (int i = 0; i < size; i++) {
+			indexes.put(partIDs[i], i);
+		}
+		indexesStale = false;
+	}
+}
@@ -1,13 +1,18 @@
 package inventory.view;
 
 import java.text.ParseException;
+import java.util.List;
 import java.util.Optional;
 
 import inventory.model.Inventory;
+import inventory.model.Money;
 import inventory.model.Part;
 import inventory.model.Product;
 import inventory.util.CurrencyCell;
+import inventory.util.LiveSearch;
 import inventory.util.PriceFormatter;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
@@ -24,9 +29,12 @@ public class ProductDialogController {
 
 	private Stage dialogStage;
 	private boolean isNewProduct;
+	private ObservableInventory observableInventory;
 	private Inventory inventory;
 	private Product product;
-	private ObservableList<Part> parts;
+	private List<Part> parts;
+	
+	private LiveSearch<Part> liveSearch;
 	
 	@FXML
 	private Label titleLabel;
@@ -55,7 +63,7 @@ public class ProductDialogController {
 	@FXML
 	private TableColumn<Part, Integer> addPartQTYColumn;
 	@FXML
-	private TableColumn<Part, Double> addPartPriceColumn;
+	private TableColumn<Part, Long> addPartPriceColumn;
 	
 	@FXML
 	private TableView<Part> delPartTable;
@@ -66,7 +74,7 @@ public class ProductDialogController {
 	@FXML
 	private TableColumn<Part, Integer> delPartQTYColumn;
 	@FXML
-	private TableColumn<Part, Double> delPartPriceColumn;
+	private TableColumn<Part, Long> delPartPriceColumn;
 	
 	@FXML
 	private Button addButton;
@@ -85,25 +93,31 @@ public class ProductDialogController {
 	private void initialize() {
 		
 		// Initialize the Add Part Table Columns
-		addPartIDColumn.setCellValueFactory(cell -> cell.getValue().partIDProperty().asObject());
-		addPartNameColumn.setCellValueFactory(cell -> cell.getValue().nameProperty());
-		addPartQTYColumn.setCellValueFactory(cell -> cell.getValue().instockProperty().asObject());
-		addPartPriceColumn.setCellValueFactory(cell -> cell.getValue().priceProperty().asObject());
+		addPartIDColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getPartID()));
+		addPartNameColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getName()));
+		addPartQTYColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getInstock()));
+		addPartPriceColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getPriceCents()));
 		addPartPriceColumn.setCellFactory(param -> new CurrencyCell<Part>());
 		
 		// Initialize the Delete Part Table Columns
-		delPartIDColumn.setCellValueFactory(cell -> cell.getValue().partIDProperty().asObject());
-		delPartNameColumn.setCellValueFactory(cell -> cell.getValue().nameProperty());
-		delPartQTYColumn.setCellValueFactory(cell -> cell.getValue().instockProperty().asObject());
-		delPartPriceColumn.setCellValueFactory(cell -> cell.getValue().priceProperty().asObject());
+		delPartIDColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getPartID()));
+		delPartNameColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getName()));
+		delPartQTYColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getInstock()));
+		delPartPriceColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getPriceCents()));
 		delPartPriceColumn.setCellFactory(param -> new CurrencyCell<Part>());
 		
-		// add the listeners to the search field so that if it is empty, reset view to all parts
-		// optionally, the search button can be eliminated by un-commenting the "else" block
+		// search as the user types, off the JavaFX Application Thread
+		liveSearch = new LiveSearch<>(text -> inventory.searchForPartByString(text), addPartTable::setItems);
+		
+		// add the listeners to the search field so that if it is empty, reset view to all parts,
+		// otherwise start a live search
 		searchField.textProperty().addListener((obs, oldText, newText) -> {
 			if (newText == null || newText.isEmpty()) {
-				addPartTable.setItems(inventory.getPartList());
-			}//else { partTable.setItems(inventory.searchForPartByString(newText)); }
+				liveSearch.cancel();
+				addPartTable.setItems(observableInventory.getPartList());
+			} else {
+				liveSearch.search(newText);
+			}
 		});
 		
 		// set up a listener on the price field to add the dollar symbol
@@ -128,15 +142,16 @@ public class ProductDialogController {
 	/**
 	 * Set up the stage after initialization
 	 * @param stage the stage of the dialog
-	 * @param existingInventory the existing inventory that holds the product being edited
+	 * @param existingInventory the shown inventory that holds the product being edited
 	 * @param editProduct the product being modified, null if a product is being added
 	 */
-	public void setDialogScreen(Stage stage, Inventory existingInventory, Product editProduct) {
+	public void setDialogScreen(Stage stage, ObservableInventory existingInventory, Product editProduct) {
 		dialogStage = stage;
-		inventory = existingInventory;
+		observableInventory = existingInventory;
+		inventory = existingInventory.getInventory();
 		product = editProduct;
 		
-		addPartTable.setItems(inventory.getPartList());
+		addPartTable.setItems(observableInventory.getPartList());
 		
         if (editProduct == null) { // new part
         	isNewProduct = true;
@@ -160,7 +175,8 @@ public class ProductDialogController {
 		maxField.setText(Integer.toString(product.getMax()));
 		priceField.setText(PriceFormatter.format(product.getPrice()));
 		
-		delPartTable.setItems(product.getParts());
+		// the parts are edited in a copy, so the product is only changed when it is saved
+		delPartTable.setItems(FXCollections.observableArrayList(product.getParts()));
 	}
 	
 	/**
@@ -171,11 +187,11 @@ public class ProductDialogController {
 	private void handleSearch() {
 		String searchText = searchField.getText();
 		if(searchText == null || searchText.isEmpty()) {
-			addPartTable.setItems(inventory.getPartList());
+			addPartTable.setItems(observableInventory.getPartList());
 		}
 		
-		ObservableList<Part> partsFound = inventory.searchForPartByString(searchText);
-		addPartTable.setItems(partsFound);
+		List<Part> partsFound = inventory.searchForPartByString(searchText);
+		addPartTable.setItems(FXCollections.observableArrayList(partsFound));
 	}
 	
 	/**
@@ -188,22 +204,22 @@ public class ProductDialogController {
 		
 		try {
 			// get the price of the part being added
-			double price = 0;
+			long price = 0;
 			String priceString = priceField.getText();
 			if(priceString != null && !priceString.isEmpty()) {
-				price = PriceFormatter.parse(priceString);
+				price = PriceFormatter.parseCents(priceString);
 			}
 			
 			// add the part to the table
 			delPartTable.getItems().add(partToAdd);
 			
 			// get the total cost of all the parts
-			double partCost = getCostOfParts();
+			long partCost = getCostOfParts();
 			
 			// make sure that the total price will be greater than the sum of the parts
 			if (partCost > price) {
-				price += partToAdd.getPrice();
-				priceString = PriceFormatter.format(price);
+				price += partToAdd.getPriceCents();
+				priceString = PriceFormatter.formatCents(price);
 				priceField.setText(priceString);
 			}
 		} catch (ParseException e) {
@@ -224,17 +240,17 @@ public class ProductDialogController {
 		
 		try {
 			// get the price of the part being added
-			double price = 0;
+			long price = 0;
 			String priceString = priceField.getText();
 			if(priceString != null && !priceString.isEmpty()) {
-				price = PriceFormatter.parse(priceString);
+				price = PriceFormatter.parseCents(priceString);
 			}
 			
 			// make sure that the total price will stay positive
-			if (price - partToDelete.getPrice() >= 0) {
+			if (price - partToDelete.getPriceCents() >= 0) {
 				// subtract part price from product price
-				price -= partToDelete.getPrice();
-				priceString = PriceFormatter.format(price);
+				price -= partToDelete.getPriceCents();
+				priceString = PriceFormatter.formatCents(price);
 				priceField.setText(priceString);
 			}
 		} catch (ParseException e) {
@@ -280,13 +296,13 @@ public class ProductDialogController {
 			}
 			
 			// try parsing all of the numeric values
-			double price = PriceFormatter.parse(priceString);
+			long price = PriceFormatter.parseCents(priceString);
 			int instock = Integer.parseInt(instockString);
 			int min = Integer.parseInt(minString);
 			int max = Integer.parseInt(maxString);
 			
 			// get the total cost of all the parts
-			double partCost = getCostOfParts();
+			long partCost = getCostOfParts();
 			
 			// check that the total cost of the parts is less than the price
 			if (partCost > price) {
@@ -294,7 +310,16 @@ public class ProductDialogController {
 						+ "price of all the parts it contains.");
 			}
 			
-			editProduct = new Product(name, price, instock, min, max, parts);
+			editProduct = new Product(name, Money.toDollars(price), instock, min, max, parts);
+			
+			// the dialog only edits the parts, so a modified product keeps its assemblies
+			if (!isNewProduct) {
+				editProduct.copyAssemblies(product);
+				if (editProduct.getPartsCostCents() > price) {
+					throw new IllegalArgumentException("Price cannot be less than the total\n"
+							+ "price of all the parts and assemblies it contains.");
+				}
+			}
 			
 			if(isNewProduct) { // a new product is being added
 				// see if a product with the same name already exists
@@ -349,11 +374,11 @@ public class ProductDialogController {
 
 	/**
 	 * 
-	 * @return the total cost of all parts contained in the product
+	 * @return the total cost in cents of all parts contained in the product
 	 * as currently shown in the table view
 	 */
-	private double getCostOfParts() {
-		double partCost = 0;
+	private long getCostOfParts() {
+		long partCost = 0;
 		
 		// get all the parts from the table
 		ObservableList<Part> partsContained = delPartTable.getItems();
@@ -365,7 +390,7 @@ public class ProductDialogController {
 		
 		// get the total sum cost
 		for(Part part : partsContained) {
-			partCost += part.getPrice();
+			partCost += part.getPriceCents();
 		}
 		return partCost;
 	}
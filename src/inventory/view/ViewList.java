@@ -0,0 +1,125 @@
+package inventory.view;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javafx.collections.ModifiableObservableListBase;
+
+/**
+ * An observable list that can group any number of changes into a single change event,
+ * so a TableView showing it is only refreshed once for a whole batch of changes.
+ * @author Aaron Echols
+ *
+ * @param <E> the type of the elements in the list
+ */
+final class ViewList<E> extends ModifiableObservableListBase<E> {
+
+	private final List<E> elements = new ArrayList<>();
+	// the index of each element, kept up to date as elements are added to the end or set,
+	// and built again after an element is inserted or removed, which moves the ones after it
+	private final Map<E, Integer> indexes = new IdentityHashMap<>();
+	private boolean indexesStale;
+	// set when an element is in the list more than once, so its index is not enough to find it
+	private boolean repeated;
+
+	/**
+	 * Make a number of changes to the list, reported to its listeners as one change.
+	 * @param changes makes the changes to the list
+	 */
+	void batch(Runnable changes) {
+		beginChange();
+		try {
+			changes.run();
+		} finally {
+			endChange();
+		}
+	}
+
+	/**
+	 * Show the elements that changed in place again, by reporting each of them as replaced by itself.
+	 * @param changed the elements that changed
+	 */
+	void refresh(Set<E> changed) {
+		if (indexesStale) rebuildIndexes();
+		if (repeated) {
+			for (int i = 0; i < elements.size(); i++) {
+				E element = elements.get(i);
+				if (changed.contains(element)) {
+					set(i, element);
+				}
+			}
+			return;
+		}
+
+		// only the changed elements are looked at, in list order
+		int[] found = new int[changed.size()];
+		int count = 0;
+		for (E element : changed) {
+			Integer index = indexes.get(element);
+			if (index != null) found[count++] = index;
+		}
+		Arrays.sort(found, 0, count);
+		for (int i = 0; i < count; i++) {
+			set(found[i], elements.get(found[i]));
+		}
+	}
+	@Override
+	public int indexOf(Object element) {
+		if (indexesStale) rebuildIndexes();
+		if (repeated) return super.indexOf(element);
+		Integer index = indexes.get(element);
+		return index == null ? -1 : index;
+	}
+
+	@Override
+	public E get(int index) {
+		return elements.get(index);
+	}
+	@Override
+	public int size() {
+		return elements.size();
+	}
+	@Override
+	protected void doAdd(int index, E element) {
+		elements.add(index, element);
+		if (index == elements.size() - 1 && !indexesStale) {
+			index(element, index);
+		} else {
+			indexesStale = true;
+		}
+	}
+	@Override
+	protected E doSet(int index, E element) {
+		E old = elements.set(index, element);
+		if (!indexesStale) {
+			if (repeated) {
+				indexesStale = true;
+			} else {
+				indexes.remove(old);
+				index(element, index);
+			}
+		}
+		return old;
+	}
+	@Override
+	protected E doRemove(int index) {
+		indexesStale = true;
+		return elements.remove(index);
+	}
+
+	private void index(E element, int index) {
+		if (indexes.put(element, index) != null) repeated = true;
+	}
+	private void rebuildIndexes() {
+		indexes.clear();
+		repeated = false;
+		for (int i = 0; i < elements.size(); i++) {
+			index(elements.get(i), i);
+		}
+		indexesStale = false;
+	}
+}